@@ -0,0 +1,117 @@
+package pl.multiplex.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.multiplex.network.Hall;
+import pl.multiplex.pricing.DefaultPricingPolicy;
+import pl.multiplex.pricing.TicketFactory;
+import pl.multiplex.sales.Guest;
+import pl.multiplex.sales.Reservation;
+import pl.multiplex.sales.SeatReservationRequest;
+import pl.multiplex.sales.TicketPurchaseRequest;
+import pl.multiplex.screening.Screening;
+import pl.multiplex.shared.SeatId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gorące ścieżki seansu: rezerwacja i anulowanie, zakup, plan wolnych miejsc i SeatMap.
+ * <p>
+ * Wszystkie wątki jednego przebiegu dzielą ten sam seans (Scope.Benchmark), więc liczba wątków z podklasy
+ * ({@link ScreeningBenchmarks} – 1, {@link ScreeningContentionBenchmarks} – 4) to scenariusz rywalizacji (premiera).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public abstract class AbstractScreeningBenchmarks {
+
+    @Param({"100", "400", "1000"})
+    public int hallSize;
+
+    private final TicketFactory ticketFactory = new TicketFactory(new DefaultPricingPolicy());
+    private final Guest buyer = new Guest("bench");
+
+    private Screening screening;
+    private Screening halfSold;
+    private List<SeatId> seatIds;
+
+    private Hall saleHall;
+    private final AtomicLong cursor = new AtomicLong();
+    private final Map<Long, Screening> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Losowanie miejsc osobno na wątek – wspólny Random byłby osobnym punktem rywalizacji.
+     */
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final Random random = new Random(Thread.currentThread().threadId());
+    }
+
+    @Setup
+    public void setUp() {
+        screening = BenchmarkFixture.screening(hallSize);
+        seatIds = List.copyOf(screening.getHall().getSeatIds());
+        halfSold = BenchmarkFixture.screening(hallSize);
+        for (int i = 0; i < hallSize; i += 2) {
+            SeatId seat = halfSold.getHall().seatAt(i).getId();
+            halfSold.buyTickets(new TicketPurchaseRequest(buyer, Set.of(seat)), ticketFactory);
+        }
+        saleHall = BenchmarkFixture.hall("Bench", hallSize);
+    }
+
+    /**
+     * Rezerwacja losowego miejsca i jej anulowanie; konflikt z innym wątkiem to 0.
+     */
+    @Benchmark
+    public int reserveCancel(ThreadRandom thread) {
+        SeatId seat = seatIds.get(thread.random.nextInt(seatIds.size()));
+        try {
+            Reservation r = screening.reserveSeats(new SeatReservationRequest(buyer, Set.of(seat)));
+            screening.cancelReservation(r.getReservationId());
+            return 1;
+        } catch (IllegalStateException | NoSuchElementException conflict) {
+            return 0;
+        }
+    }
+
+    /**
+     * Zakup kolejnego wolnego miejsca. Po wyprzedaniu wątki przechodzą na nowy seans
+     * (koszt jego utworzenia rozkłada się na hallSize zakupów).
+     */
+    @Benchmark
+    public int buyTickets() {
+        long n = cursor.getAndIncrement();
+        long generation = n / hallSize;
+        Screening current = generations.computeIfAbsent(generation,
+                g -> BenchmarkFixture.screening(saleHall, BenchmarkFixture.TODAY.plusDays(1).atTime(18, 0)));
+        if (n % hallSize == 0) generations.remove(generation - 2);
+
+        SeatId seat = saleHall.seatAt((int) (n % hallSize)).getId();
+        return current.buyTickets(new TicketPurchaseRequest(buyer, Set.of(seat)), ticketFactory).getTickets().size();
+    }
+
+    /**
+     * Plan wolnych miejsc na seansie zajętym w połowie.
+     */
+    @Benchmark
+    public Set<SeatId> getFreeSeats() {
+        return halfSold.getFreeSeats();
+    }
+
+    /**
+     * Plan sali z pamięci podręcznej (bez zmian między odczytami) – odpowiednik getFreeSeats dla klientów.
+     */
+    @Benchmark
+    public int getSeatMap() {
+        return halfSold.getSeatMap().encodedSize();
+    }
+}
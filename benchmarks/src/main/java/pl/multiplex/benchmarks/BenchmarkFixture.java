@@ -0,0 +1,93 @@
+package pl.multiplex.benchmarks;
+
+import pl.multiplex.network.Cinema;
+import pl.multiplex.network.Hall;
+import pl.multiplex.network.MultiplexNetwork;
+import pl.multiplex.network.Seat;
+import pl.multiplex.screening.*;
+import pl.multiplex.shared.SeatId;
+import pl.multiplex.shared.SeatZone;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dane do benchmarków: sale zadanej wielkości, kina z repertuarem, sieć kin.
+ * Deterministyczne (bez losowości), żeby kolejne uruchomienia mierzyły to samo.
+ */
+final class BenchmarkFixture {
+
+    static final int SEATS_PER_ROW = 20;
+    static final LocalDate TODAY = LocalDate.of(2026, 11, 2);
+
+    private static final String[] TITLES = {
+            "Diuna", "Oppenheimer", "Barbie", "Interstellar", "Incepcja", "Matrix", "Gladiator", "Avatar",
+            "Joker", "Tenet", "Shrek", "Toy Story", "Kler", "Boże Ciało", "Pianista", "Seksmisja",
+            "Miś", "Rejs", "Vabank", "Ida"
+    };
+
+    private BenchmarkFixture() {
+    }
+
+    /**
+     * Sala z rzędami po 20 miejsc: pierwsze dwa rzędy PROMO, ostatnie dwa VIP, reszta STANDARD.
+     */
+    static Hall hall(String name, int seatCount) {
+        int rows = (seatCount + SEATS_PER_ROW - 1) / SEATS_PER_ROW;
+        List<Seat> seats = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            int row = i / SEATS_PER_ROW;
+            SeatZone zone = row < 2 ? SeatZone.PROMO : row >= rows - 2 ? SeatZone.VIP : SeatZone.STANDARD;
+            seats.add(new Seat(new SeatId("R" + (row + 1), i % SEATS_PER_ROW + 1), zone));
+        }
+        return new Hall(name, seats);
+    }
+
+    static Movie movie(int i) {
+        return new Movie(TITLES[i % TITLES.length] + (i < TITLES.length ? "" : " " + (i / TITLES.length + 1)),
+                "Reżyser " + (i % 7), 90 + i % 60, LanguageOption.values()[i % LanguageOption.values().length],
+                List.of("temat " + i % 5), AgeRating.values()[i % AgeRating.values().length]);
+    }
+
+    static Screening screening(Hall hall, LocalDateTime start) {
+        return new Screening(movie(0), hall, start, ScreeningFormat.TWO_D, ScreeningClass.STANDARD);
+    }
+
+    /**
+     * Seans jutro o 18:00 w nowej sali zadanej wielkości.
+     */
+    static Screening screening(int hallSize) {
+        return screening(hall("Bench", hallSize), TODAY.plusDays(1).atTime(18, 0));
+    }
+
+    /**
+     * Kino z podaną liczbą seansów rozłożonych na 10 dni od TODAY, sale po kolei, pierwszy wolny termin od 9:00.
+     */
+    static Cinema cinema(String name, int halls, int hallSize, int screenings) {
+        Cinema cinema = new Cinema(name, "ul. Testowa 1");
+        for (int h = 0; h < halls; h++) {
+            cinema.addHall(hall("Sala " + (h + 1), hallSize));
+        }
+        for (int i = 0; i < screenings; i++) {
+            Hall hall = cinema.getHalls().get(i % halls);
+            Movie movie = movie(i % (TITLES.length * 2));
+            LocalDateTime after = TODAY.plusDays(i / halls % 10).atTime(9, 0);
+            LocalDateTime start = cinema.findNextFreeSlot(hall, after, Duration.ofMinutes(movie.getDurationMin() + 20));
+            ScreeningFormat format = i % 3 == 0 ? ScreeningFormat.THREE_D : ScreeningFormat.TWO_D;
+            ScreeningClass clazz = i % 5 == 0 ? ScreeningClass.VIP : ScreeningClass.STANDARD;
+            cinema.schedule(new Screening(movie, hall, start, format, clazz));
+        }
+        return cinema;
+    }
+
+    static MultiplexNetwork network(int cinemas, int halls, int hallSize, int screeningsPerCinema) {
+        MultiplexNetwork network = new MultiplexNetwork();
+        for (int c = 0; c < cinemas; c++) {
+            network.addCinema(cinema("Kino " + (c + 1), halls, hallSize, screeningsPerCinema));
+        }
+        return network;
+    }
+}
@@ -0,0 +1,78 @@
+package pl.multiplex.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.multiplex.network.Cinema;
+import pl.multiplex.network.Hall;
+import pl.multiplex.network.MultiplexNetwork;
+import pl.multiplex.screening.Movie;
+import pl.multiplex.screening.Screening;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repertuar kina: planowanie seansu z kontrolą kolizji, program na tydzień, wyszukiwanie filmu,
+ * a w sieci – wyszukiwanie kina po nazwie. Cinema nie jest przeznaczone do równoległego planowania – jeden wątek.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(1)
+public class CinemaBenchmarks {
+
+    private static final int HALLS_PER_CINEMA = 8;
+    private static final int CINEMAS = 20;
+    private static final String[] QUERIES = {"di", "oppen", "toy sto", "matrix", "reżyser 3", "temat", "xyz"};
+
+    @Param({"20", "200"})
+    public int screeningsPerCinema;
+
+    private Cinema cinema;
+    private Screening extra;
+    private MultiplexNetwork network;
+    private String[] cinemaNames;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cinema = BenchmarkFixture.cinema("Bench", HALLS_PER_CINEMA, 100, screeningsPerCinema);
+        Hall hall = cinema.getHalls().get(0);
+        LocalDateTime slot = cinema.findNextFreeSlot(hall, BenchmarkFixture.TODAY.plusDays(5).atTime(9, 0), Duration.ofHours(3));
+        extra = BenchmarkFixture.screening(hall, slot);
+
+        network = BenchmarkFixture.network(CINEMAS, 1, 100, 1);
+        cinemaNames = network.getCinemas().stream().map(Cinema::getName).toArray(String[]::new);
+    }
+
+    /**
+     * Zaplanowanie seansu i zdjęcie go z repertuaru – stan kina się nie zmienia.
+     */
+    @Benchmark
+    public boolean scheduleUnschedule() {
+        cinema.schedule(extra);
+        return cinema.unschedule(extra);
+    }
+
+    @Benchmark
+    public List<Screening> getProgrammeNextWeek() {
+        return cinema.getProgrammeNextWeek(BenchmarkFixture.TODAY);
+    }
+
+    @Benchmark
+    public List<Movie> findMovie() {
+        return cinema.findMovie(QUERIES[next++ % QUERIES.length]);
+    }
+
+    /**
+     * Sieć 20 kin, niezależnie od screeningsPerCinema.
+     */
+    @Benchmark
+    public Cinema findCinema() {
+        return network.findCinema(cinemaNames[next++ % cinemaNames.length]);
+    }
+}
@@ -0,0 +1,84 @@
+package pl.multiplex.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.multiplex.network.Seat;
+import pl.multiplex.pricing.DefaultPricingPolicy;
+import pl.multiplex.pricing.PricingPolicy;
+import pl.multiplex.screening.Screening;
+import pl.multiplex.shared.MinorMoney;
+import pl.multiplex.shared.Money;
+import pl.multiplex.shared.MoneyAccumulator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suma cen miliona biletów: Money.plus (BigDecimal) vs MoneyAccumulator i MinorMoney (grosze na long).
+ * Ceny z DefaultPricingPolicy dla wszystkich stref sali, wyliczone raz w @Setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@Threads(1)
+public class MoneySumBenchmark {
+
+    private static final int TICKETS = 1_000_000;
+
+    private Money[] prices;
+    private MinorMoney[] minorPrices;
+
+    @Setup
+    public void setUp() {
+        Screening screening = BenchmarkFixture.screening(100);
+        List<Seat> seats = screening.getHall().getSeatList();
+        PricingPolicy pricing = new DefaultPricingPolicy();
+
+        prices = new Money[TICKETS];
+        minorPrices = new MinorMoney[TICKETS];
+        for (int i = 0; i < TICKETS; i++) {
+            prices[i] = pricing.priceFor(screening, seats.get(i % seats.size()));
+            minorPrices[i] = MinorMoney.of(prices[i]);
+        }
+    }
+
+    @Benchmark
+    public long moneyPlus() {
+        Money total = prices[0];
+        for (int i = 1; i < prices.length; i++) {
+            total = total.plus(prices[i]);
+        }
+        return total.toMinorUnits();
+    }
+
+    @Benchmark
+    public long moneyStreamReduce() {
+        return Arrays.stream(prices).reduce(Money::plus).orElseThrow().toMinorUnits();
+    }
+
+    @Benchmark
+    public long moneyAccumulator() {
+        MoneyAccumulator total = new MoneyAccumulator();
+        for (Money price : prices) {
+            total.add(price);
+        }
+        return total.getMinorUnits();
+    }
+
+    @Benchmark
+    public long moneyAccumulatorCollector() {
+        return Arrays.stream(prices).collect(MoneyAccumulator.summing()).toMinorUnits();
+    }
+
+    @Benchmark
+    public long minorMoneyPlus() {
+        MinorMoney total = minorPrices[0];
+        for (int i = 1; i < minorPrices.length; i++) {
+            total = total.plus(minorPrices[i]);
+        }
+        return total.minorUnits();
+    }
+}
@@ -0,0 +1,54 @@
+package pl.multiplex.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.multiplex.network.Seat;
+import pl.multiplex.pricing.DefaultPricingPolicy;
+import pl.multiplex.pricing.PricingPolicy;
+import pl.multiplex.pricing.TicketFactory;
+import pl.multiplex.sales.Guest;
+import pl.multiplex.sales.Ticket;
+import pl.multiplex.screening.Screening;
+import pl.multiplex.shared.Money;
+import pl.multiplex.shared.SeatId;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cennik i tworzenie biletu (wycena + identyfikator) na sali 400 miejsc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(1)
+public class PricingBenchmarks {
+
+    private final PricingPolicy pricing = new DefaultPricingPolicy();
+    private final TicketFactory ticketFactory = new TicketFactory(pricing);
+    private final Guest buyer = new Guest("bench");
+
+    private Screening screening;
+    private List<SeatId> seatIds;
+    private List<Seat> seats;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        screening = BenchmarkFixture.screening(400);
+        seatIds = List.copyOf(screening.getHall().getSeatIds());
+        seats = screening.getHall().getSeatList();
+    }
+
+    @Benchmark
+    public Ticket createTicket() {
+        return ticketFactory.createTicket(buyer, screening, seatIds.get(next++ % seatIds.size()));
+    }
+
+    @Benchmark
+    public Money priceFor() {
+        return pricing.priceFor(screening, seats.get(next++ % seats.size()));
+    }
+}
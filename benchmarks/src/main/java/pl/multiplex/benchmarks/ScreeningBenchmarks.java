@@ -0,0 +1,10 @@
+package pl.multiplex.benchmarks;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Seans bez rywalizacji – jeden wątek.
+ */
+@Threads(1)
+public class ScreeningBenchmarks extends AbstractScreeningBenchmarks {
+}
@@ -0,0 +1,10 @@
+package pl.multiplex.benchmarks;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Premiera: cztery wątki na jednym seansie (CAS-y na tych samych miejscach i licznikach).
+ */
+@Threads(4)
+public class ScreeningContentionBenchmarks extends AbstractScreeningBenchmarks {
+}
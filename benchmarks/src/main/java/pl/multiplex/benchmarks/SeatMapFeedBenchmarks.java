@@ -0,0 +1,90 @@
+package pl.multiplex.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.multiplex.pricing.DefaultPricingPolicy;
+import pl.multiplex.pricing.TicketFactory;
+import pl.multiplex.sales.Guest;
+import pl.multiplex.sales.Reservation;
+import pl.multiplex.sales.SeatReservationRequest;
+import pl.multiplex.sales.TicketPurchaseRequest;
+import pl.multiplex.screening.Screening;
+import pl.multiplex.screening.SeatMapDelta;
+import pl.multiplex.shared.SeatId;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Żywy plan sali: jeden wątek sprzedaży rezerwuje i anuluje miejsca, a trzech klientów odpytuje o zmiany
+ * od swojej wersji (getSeatMapChanges). Grupa dzieli seans (Scope.Group) – wynik każdej metody osobno,
+ * więc widać, ile czytanie delt kosztuje sprzedaż i odwrotnie.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SeatMapFeedBenchmarks {
+
+    @Param({"100", "400", "1000"})
+    public int hallSize;
+
+    private final Guest buyer = new Guest("bench");
+
+    private Screening screening;
+    private List<SeatId> seatIds;
+
+    @State(Scope.Thread)
+    public static class Client {
+        final Random random = new Random(Thread.currentThread().threadId());
+        long version = -1;
+    }
+
+    @Setup
+    public void setUp() {
+        TicketFactory ticketFactory = new TicketFactory(new DefaultPricingPolicy());
+        screening = BenchmarkFixture.screening(hallSize);
+        for (int i = 0; i < hallSize; i += 2) {
+            SeatId seat = screening.getHall().seatAt(i).getId();
+            screening.buyTickets(new TicketPurchaseRequest(buyer, Set.of(seat)), ticketFactory);
+        }
+        seatIds = List.copyOf(screening.getHall().getSeatIds());
+    }
+
+    /**
+     * Dwie zmiany stanu na wywołanie; miejsce sprzedane albo zajęte to 0.
+     */
+    @Benchmark
+    @Group("feed")
+    @GroupThreads(1)
+    public int sales(Client client) {
+        SeatId seat = seatIds.get(client.random.nextInt(seatIds.size()));
+        try {
+            Reservation r = screening.reserveSeats(new SeatReservationRequest(buyer, Set.of(seat)));
+            screening.cancelReservation(r.getReservationId());
+            return 1;
+        } catch (IllegalStateException | NoSuchElementException conflict) {
+            return 0;
+        }
+    }
+
+    /**
+     * Delta od wersji klienta; pierwszy odczyt i resync to cały plan sali.
+     */
+    @Benchmark
+    @Group("feed")
+    @GroupThreads(3)
+    public int changes(Client client) {
+        if (client.version < 0) {
+            client.version = screening.getSeatMap().getVersion();
+            return 0;
+        }
+        SeatMapDelta delta = screening.getSeatMapChanges(client.version);
+        client.version = delta.isResyncRequired() ? screening.getSeatMap().getVersion() : delta.getVersion();
+        return delta.getChangeCount();
+    }
+}
@@ -129,8 +129,8 @@ public class Main {
 
         System.out.println("\nBilety zapisane na koncie:");
         familyBuyer.getTickets().forEach(t ->
-                System.out.println("film=" + t.getScreening().getMovie().getTitle()
-                        + " godzina=" + t.getScreening().getStart()
+                System.out.println("film=" + t.getMovieTitle()
+                        + " godzina=" + t.getScreeningStart()
                         + " miejsce=" + t.getSeatId()
                         + " cena=" + t.getPrice())
         );
@@ -152,8 +152,8 @@ public class Main {
 
         System.out.println("\nBilety klienta A:");
         customerA.getTickets().forEach(t ->
-                System.out.println("film=" + t.getScreening().getMovie().getTitle()
-                        + " godzina=" + t.getScreening().getStart()
+                System.out.println("film=" + t.getMovieTitle()
+                        + " godzina=" + t.getScreeningStart()
                         + " miejsce=" + t.getSeatId()
                         + " cena=" + t.getPrice())
         );
@@ -0,0 +1,415 @@
+package pl.multiplex.bench;
+
+import pl.multiplex.metrics.DomainMetrics;
+import pl.multiplex.metrics.OperationSnapshot;
+import pl.multiplex.network.Cinema;
+import pl.multiplex.network.MultiplexNetwork;
+import pl.multiplex.pricing.DefaultPricingPolicy;
+import pl.multiplex.pricing.TicketFactory;
+import pl.multiplex.sales.Guest;
+import pl.multiplex.sales.Reservation;
+import pl.multiplex.sales.SalesGateway;
+import pl.multiplex.sales.SeatReservationRequest;
+import pl.multiplex.sales.TicketPurchaseRequest;
+import pl.multiplex.screening.Screening;
+import pl.multiplex.shared.SeatId;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test obciążeniowy: sieć z {@link NetworkGenerator} i wiele wątków odtwarzających realistyczną mieszankę
+ * operacji – przeglądanie (repertuar dnia, wyszukiwanie filmu, plan sali), rezerwacja najlepszych miejsc,
+ * anulowanie własnej rezerwacji i zakup. Seanse wybieramy z rozkładu Zipfa, więc kilka gorących seansów
+ * dostaje większość ruchu (i z czasem się wyprzedaje).
+ * <p>
+ * Każdy wątek ma własne histogramy (bez współdzielenia w trakcie pomiaru); po rozgrzewce są zerowane,
+ * a na końcu scalane. Raport: przepustowość, odrzucone operacje (konflikt, brak miejsc) i percentyle opóźnień,
+ * a pod nim metryki domeny ({@link DomainMetrics}) z tego samego okna – wystawione też przez JMX na czas testu.
+ * <p>
+ * {@code gateway=true} kieruje rezerwacje, anulowania i zakupy przez {@link SalesGateway} (klient czeka na wynik),
+ * a {@code virtual=true} uruchamia klientów na wątkach wirtualnych – np. tysiące klientów na premierę.
+ * Porównanie bramy z wywołaniami wprost na maszynie z wieloma rdzeniami:
+ * {@code LoadTest threads=2000 virtual=true hot=2.0 mix=reserve:60,cancel:30,buy:10} z {@code gateway=true} i bez.
+ * <p>
+ * Uruchomienie (bez okna, np. na serwerze):
+ * {@code java pl.multiplex.bench.LoadTest [seed=42] [cinemas=20] [halls=10] [seats=60-400] [movies=60] [weeks=2]
+ * [threads=8] [virtual=false] [gateway=false] [warmup=5] [duration=30] [mix=browse:70,reserve:15,cancel:5,buy:10]
+ * [hot=0.9]}
+ */
+public final class LoadTest {
+
+    enum Operation {
+        BROWSE, RESERVE, CANCEL, BUY
+    }
+
+    private static final int MAX_HELD_RESERVATIONS = 32;
+
+    private final MultiplexNetwork network;
+    private final List<Cinema> cinemas;
+    private final List<Screening> screenings;
+    private final double[] screeningPopularity;
+    private final List<String> movieQueries;
+    private final LocalDate firstDay;
+    private final int days;
+    private final int[] mix;
+    private final TicketFactory ticketFactory = new TicketFactory(new DefaultPricingPolicy());
+    private final SalesGateway gateway; // null – wywołania wprost na Screening
+
+    private LoadTest(MultiplexNetwork network, NetworkGenerator.Config config, int[] mix, double hotExponent, long seed,
+                     boolean viaGateway) {
+        this.network = network;
+        this.gateway = viaGateway ? new SalesGateway(ticketFactory) : null;
+        if (gateway != null) {
+            gateway.attach(network);
+        }
+        this.cinemas = network.getCinemas();
+        this.firstDay = config.firstDay();
+        this.days = config.weeks() * 7;
+        this.mix = mix;
+
+        List<Screening> all = new ArrayList<>();
+        Set<String> titles = new TreeSet<>();
+        for (Cinema cinema : cinemas) {
+            for (Screening s : cinema.getScreenings()) {
+                all.add(s);
+                titles.add(s.getMovie().getTitle());
+            }
+        }
+        Collections.shuffle(all, new Random(seed));
+        this.screenings = List.copyOf(all);
+        this.screeningPopularity = NetworkGenerator.zipfCumulative(all.size(), hotExponent);
+        this.movieQueries = titles.stream().map(t -> t.substring(0, Math.min(t.length(), 4 + t.length() % 3))).toList();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> opts = parse(args);
+        long seed = Long.parseLong(opts.getOrDefault("seed", "42"));
+        String[] seats = opts.getOrDefault("seats", "60-400").split("-");
+        NetworkGenerator.Config defaults = NetworkGenerator.Config.defaults();
+        NetworkGenerator.Config config = new NetworkGenerator.Config(seed,
+                Integer.parseInt(opts.getOrDefault("cinemas", String.valueOf(defaults.cinemas()))),
+                Integer.parseInt(opts.getOrDefault("halls", String.valueOf(defaults.hallsPerCinema()))),
+                Integer.parseInt(seats[0].trim()),
+                Integer.parseInt(seats[seats.length - 1].trim()),
+                Integer.parseInt(opts.getOrDefault("movies", String.valueOf(defaults.movies()))),
+                Integer.parseInt(opts.getOrDefault("weeks", String.valueOf(defaults.weeks()))),
+                defaults.firstDay());
+        int threads = Integer.parseInt(opts.getOrDefault("threads", "8"));
+        boolean virtual = Boolean.parseBoolean(opts.getOrDefault("virtual", "false"));
+        boolean viaGateway = Boolean.parseBoolean(opts.getOrDefault("gateway", "false"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("warmup", "5")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("duration", "30")));
+        int[] mix = parseMix(opts.getOrDefault("mix", "browse:70,reserve:15,cancel:5,buy:10"));
+        double hot = Double.parseDouble(opts.getOrDefault("hot", "0.9"));
+
+        long t0 = System.nanoTime();
+        MultiplexNetwork network = new NetworkGenerator(config).generate();
+        LoadTest test = new LoadTest(network, config, mix, hot, seed, viaGateway);
+        System.out.printf("Network: %d cinemas, %d screenings, %,d seats (generated in %d ms, seed %d)%n",
+                test.cinemas.size(), test.screenings.size(), test.totalSeats(), (System.nanoTime() - t0) / 1_000_000, seed);
+        System.out.printf("Workload: %d %s threads, warmup %d s, duration %d s, mix %s, hot %.2f, sales %s%n",
+                threads, virtual ? "virtual" : "platform", warmup.toSeconds(), duration.toSeconds(),
+                opts.getOrDefault("mix", "browse:70,reserve:15,cancel:5,buy:10"), hot,
+                viaGateway ? "via SalesGateway" : "direct");
+
+        DomainMetrics.registerMBeans();
+        test.run(threads, virtual, warmup, duration, seed).print(duration);
+        if (test.gateway != null) {
+            test.gateway.close();
+        }
+        System.out.printf("Sold out: %d of %d screenings%n", test.soldOutCount(), test.screenings.size());
+
+        System.out.println();
+        System.out.println(OperationSnapshot.header());
+        for (OperationSnapshot operation : DomainMetrics.snapshot()) {
+            if (operation.count() > 0) System.out.println(operation.format());
+        }
+    }
+
+    // -------------------
+    // workload
+    // -------------------
+
+    private Report run(int threads, boolean virtual, Duration warmup, Duration duration, long seed)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(threads);
+        Worker[] workers = new Worker[threads];
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        for (int t = 0; t < threads; t++) {
+            Worker worker = new Worker(t, seed + t, measureFrom, end);
+            workers[t] = worker;
+            Runnable task = () -> {
+                try {
+                    worker.loop();
+                } finally {
+                    done.countDown();
+                }
+            };
+            if (virtual) {
+                Thread.ofVirtual().name("load-" + t).start(task);
+            } else {
+                Thread thread = new Thread(task, "load-" + t);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        done.await();
+
+        Report report = new Report();
+        for (Worker worker : workers) {
+            report.add(worker);
+        }
+        return report;
+    }
+
+    private final class Worker {
+
+        private final SplittableRandom random;
+        private final int index;
+        private final Guest buyer;
+        private final long measureFrom;
+        private final long end;
+        private final ArrayDeque<Reservation> held = new ArrayDeque<>();
+
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        private final long[] rejected = new long[Operation.values().length];
+        private boolean measuring;
+
+        private Worker(int index, long seed, long measureFrom, long end) {
+            this.index = index;
+            this.random = new SplittableRandom(seed);
+            this.buyer = new Guest("load-" + index);
+            this.measureFrom = measureFrom;
+            this.end = end;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        void loop() {
+            long now = System.nanoTime();
+            while (now < end) {
+                if (!measuring && now >= measureFrom) {
+                    measuring = true;
+                    for (LatencyHistogram h : latencies) h.reset();
+                    Arrays.fill(rejected, 0);
+                    if (index == 0) DomainMetrics.reset();
+                }
+                Operation op = nextOperation();
+                long t0 = System.nanoTime();
+                boolean ok = execute(op);
+                now = System.nanoTime();
+                latencies[op.ordinal()].record(now - t0);
+                if (!ok) rejected[op.ordinal()]++;
+            }
+        }
+
+        private Operation nextOperation() {
+            int roll = random.nextInt(mix[mix.length - 1]);
+            int i = 0;
+            while (roll >= mix[i]) i++;
+            Operation op = Operation.values()[i];
+            // bez własnej rezerwacji nie ma czego anulować – klient najpierw rezerwuje
+            return op == Operation.CANCEL && held.isEmpty() ? Operation.RESERVE : op;
+        }
+
+        private boolean execute(Operation op) {
+            try {
+                switch (op) {
+                    case BROWSE -> browse();
+                    case RESERVE -> reserve();
+                    case CANCEL -> cancel();
+                    case BUY -> buy();
+                }
+                return true;
+            } catch (IllegalStateException | NoSuchElementException rejectedByDomain) {
+                return false; // konflikt o miejsce, brak wolnego bloku, rezerwacja już zwolniona
+            }
+        }
+
+        private void browse() {
+            switch (random.nextInt(3)) {
+                case 0 -> cinemas.get(random.nextInt(cinemas.size())).getProgrammeForDay(firstDay.plusDays(random.nextInt(days)));
+                case 1 -> network.findMovie(movieQueries.get(random.nextInt(movieQueries.size())));
+                default -> screening().getFreeSeats();
+            }
+        }
+
+        private void reserve() {
+            Reservation reservation;
+            if (gateway == null) {
+                reservation = screening().reserveBestAvailable(buyer, groupSize(), null);
+            } else {
+                Screening screening = screening();
+                Set<SeatId> block = bestBlock(screening);
+                reservation = join(gateway.reserve(screening, new SeatReservationRequest(buyer, block)));
+            }
+            if (held.size() == MAX_HELD_RESERVATIONS) {
+                cancel(held.pollFirst());
+            }
+            held.addLast(reservation);
+        }
+
+        private void cancel() {
+            cancel(held.pollLast());
+        }
+
+        private void cancel(Reservation reservation) {
+            if (gateway == null) {
+                reservation.getScreening().cancelReservation(reservation.getReservationId());
+            } else {
+                join(gateway.cancel(reservation.getScreening(), reservation.getReservationId()));
+            }
+        }
+
+        private void buy() {
+            Screening screening = screening();
+            TicketPurchaseRequest request = new TicketPurchaseRequest(buyer, bestBlock(screening));
+            if (gateway == null) {
+                screening.buyTickets(request, ticketFactory);
+            } else {
+                join(gateway.buy(screening, request));
+            }
+        }
+
+        private Set<SeatId> bestBlock(Screening screening) {
+            List<SeatId> block = screening.findBestAvailable(groupSize(), null);
+            if (block.isEmpty()) {
+                throw new IllegalStateException("Sold out: " + screening.getScreeningId());
+            }
+            return new LinkedHashSet<>(block);
+        }
+
+        private Screening screening() {
+            return screenings.get(NetworkGenerator.pick(screeningPopularity, random.nextDouble()));
+        }
+
+        /**
+         * Najczęściej para, potem pojedynczo, rodzina 3–4 osoby, rzadko grupa.
+         */
+        private int groupSize() {
+            int roll = random.nextInt(100);
+            if (roll < 45) return 2;
+            if (roll < 70) return 1;
+            if (roll < 93) return 3 + random.nextInt(2);
+            return 5 + random.nextInt(4);
+        }
+    }
+
+    // -------------------
+    // report
+    // -------------------
+
+    private static final class Report {
+
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        private final long[] rejected = new long[Operation.values().length];
+        private final LatencyHistogram total = new LatencyHistogram();
+
+        private Report() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        void add(Worker worker) {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i].add(worker.latencies[i]);
+                total.add(worker.latencies[i]);
+                rejected[i] += worker.rejected[i];
+            }
+        }
+
+        void print(Duration duration) {
+            double seconds = duration.toNanos() / 1e9;
+            System.out.printf("%-8s %12s %12s %9s %10s %10s %10s %10s %10s %10s%n",
+                    "Op", "Count", "Ops/s", "Rejected", "Mean µs", "p50 µs", "p90 µs", "p99 µs", "p99.9 µs", "Max µs");
+            for (Operation op : Operation.values()) {
+                line(op.name(), latencies[op.ordinal()], rejected[op.ordinal()], seconds);
+            }
+            line("TOTAL", total, Arrays.stream(rejected).sum(), seconds);
+        }
+
+        private static void line(String name, LatencyHistogram h, long rejected, double seconds) {
+            System.out.printf("%-8s %,12d %,12.0f %8.1f%% %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    name, h.getTotalCount(), h.getTotalCount() / seconds,
+                    h.getTotalCount() == 0 ? 0 : 100.0 * rejected / h.getTotalCount(),
+                    h.getMean() / 1000, micros(h, 50), micros(h, 90), micros(h, 99), micros(h, 99.9), h.getMax() / 1000.0);
+        }
+
+        private static double micros(LatencyHistogram h, double percentile) {
+            return h.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    /**
+     * Wynik z bramy jak z wywołania wprost – błąd domenowy wraca jako ten sam wyjątek.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+
+    private long totalSeats() {
+        long seats = 0;
+        for (Cinema cinema : cinemas) {
+            for (var hall : cinema.getHalls()) seats += hall.getSeatCount();
+        }
+        return seats;
+    }
+
+    private long soldOutCount() {
+        return screenings.stream().filter(s -> s.getOccupancy().isSoldOut()).count();
+    }
+
+    /**
+     * "browse:70,reserve:15,cancel:5,buy:10" → skumulowane wagi w kolejności Operation.
+     */
+    static int[] parseMix(String spec) {
+        int[] weights = new int[Operation.values().length];
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            if (kv.length != 2) throw new IllegalArgumentException("Invalid mix entry: " + part);
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight < 0) throw new IllegalArgumentException("mix weight must be >= 0: " + part);
+            weights[Operation.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = weight;
+        }
+        int[] cumulative = new int[weights.length];
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        if (sum <= 0) throw new IllegalArgumentException("mix weights must sum to > 0");
+        return cumulative;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                out.put(arg.trim(), "");
+            } else {
+                out.put(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+            }
+        }
+        return out;
+    }
+}
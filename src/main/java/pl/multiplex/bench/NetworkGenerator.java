@@ -0,0 +1,186 @@
+package pl.multiplex.bench;
+
+import pl.multiplex.network.Cinema;
+import pl.multiplex.network.Hall;
+import pl.multiplex.network.MultiplexNetwork;
+import pl.multiplex.network.Seat;
+import pl.multiplex.screening.*;
+import pl.multiplex.shared.SeatId;
+import pl.multiplex.shared.SeatZone;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministyczny generator sieci kin w skali sieci (dziesiątki kin, tygodnie repertuaru).
+ * <p>
+ * Ten sam seed daje tę samą sieć: sale o różnej wielkości i szerokości rzędów ze strefami jak w prawdziwym kinie
+ * (pierwszy rząd SUPER_PROMO w dużych salach, dwa kolejne PROMO, dwa ostatnie VIP, reszta STANDARD),
+ * filmy o popularności z rozkładu Zipfa (kilka hitów, długi ogon) i seanse od 10:00 do 23:00 w każdej sali,
+ * planowane przez Cinema.findNextFreeSlot z przerwą techniczną.
+ */
+public final class NetworkGenerator {
+
+    public record Config(long seed, int cinemas, int hallsPerCinema, int minSeats, int maxSeats,
+                         int movies, int weeks, LocalDate firstDay) {
+
+        public Config {
+            if (cinemas <= 0) throw new IllegalArgumentException("cinemas must be > 0");
+            if (hallsPerCinema <= 0) throw new IllegalArgumentException("hallsPerCinema must be > 0");
+            if (minSeats <= 0) throw new IllegalArgumentException("minSeats must be > 0");
+            if (maxSeats < minSeats) throw new IllegalArgumentException("maxSeats must be >= minSeats");
+            if (movies <= 0) throw new IllegalArgumentException("movies must be > 0");
+            if (weeks <= 0) throw new IllegalArgumentException("weeks must be > 0");
+            Objects.requireNonNull(firstDay, "firstDay cannot be null");
+        }
+
+        public static Config defaults() {
+            return new Config(42, 20, 10, 60, 400, 60, 2, LocalDate.of(2026, 11, 2));
+        }
+    }
+
+    private static final LocalTime FIRST_SHOW = LocalTime.of(10, 0);
+    private static final LocalTime LAST_SHOW = LocalTime.of(23, 0);
+    private static final Duration CLEANING = Duration.ofMinutes(20);
+
+    private static final String[] TITLE_WORDS = {
+            "Ostatni", "Cichy", "Czerwony", "Zimowy", "Nocny", "Dziki", "Złoty", "Zagubiony", "Szklany", "Daleki"
+    };
+    private static final String[] TITLE_NOUNS = {
+            "Horyzont", "Ogród", "Pociąg", "Port", "Las", "Zamek", "Sen", "Brzeg", "Świat", "Pilot", "Dom", "Rejs"
+    };
+    private static final String[] DIRECTORS = {
+            "Anna Nowak", "Jan Kowalski", "Maria Wiśniewska", "Piotr Wójcik", "Ewa Kamińska",
+            "Tomasz Lewandowski", "Olga Zielińska", "Marek Szymański"
+    };
+    private static final String[] THEMES = {
+            "dramat", "komedia", "thriller", "animacja", "sci-fi", "przygoda", "kryminał", "romans", "horror", "biografia"
+    };
+
+    private final Config config;
+
+    public NetworkGenerator(Config config) {
+        this.config = Objects.requireNonNull(config, "config cannot be null");
+    }
+
+    public MultiplexNetwork generate() {
+        SplittableRandom random = new SplittableRandom(config.seed());
+        List<Movie> movies = movies(random);
+        double[] popularity = zipfCumulative(movies.size(), 1.0);
+
+        MultiplexNetwork network = new MultiplexNetwork();
+        for (int c = 0; c < config.cinemas(); c++) {
+            Cinema cinema = new Cinema("Multiplex " + (c + 1), "ul. Kinowa " + (c + 1));
+            for (int h = 0; h < config.hallsPerCinema(); h++) {
+                cinema.addHall(hall("Sala " + (h + 1), random));
+            }
+            for (Hall hall : cinema.getHalls()) {
+                scheduleHall(cinema, hall, movies, popularity, random);
+            }
+            network.addCinema(cinema);
+        }
+        return network;
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    private List<Movie> movies(SplittableRandom random) {
+        List<Movie> movies = new ArrayList<>(config.movies());
+        for (int i = 0; i < config.movies(); i++) {
+            String title = TITLE_WORDS[i % TITLE_WORDS.length] + " " + TITLE_NOUNS[(i / TITLE_WORDS.length) % TITLE_NOUNS.length]
+                    + (i < TITLE_WORDS.length * TITLE_NOUNS.length ? "" : " " + (i / (TITLE_WORDS.length * TITLE_NOUNS.length) + 1));
+            List<String> themes = List.of(THEMES[random.nextInt(THEMES.length)], THEMES[random.nextInt(THEMES.length)]);
+            movies.add(new Movie(title, DIRECTORS[random.nextInt(DIRECTORS.length)], 85 + random.nextInt(80),
+                    LanguageOption.values()[random.nextInt(LanguageOption.values().length)],
+                    themes, AgeRating.values()[random.nextInt(AgeRating.values().length)]));
+        }
+        return movies;
+    }
+
+    private Hall hall(String name, SplittableRandom random) {
+        int perRow = 12 + random.nextInt(13);
+        int target = config.minSeats() + random.nextInt(config.maxSeats() - config.minSeats() + 1);
+        int rows = Math.max(1, Math.round((float) target / perRow));
+
+        List<Seat> seats = new ArrayList<>(rows * perRow);
+        for (int r = 0; r < rows; r++) {
+            SeatZone zone = zoneOf(r, rows);
+            String row = r < 26 ? String.valueOf((char) ('A' + r)) : "R" + (r + 1);
+            for (int n = 1; n <= perRow; n++) {
+                seats.add(new Seat(new SeatId(row, n), zone));
+            }
+        }
+        return new Hall(name, seats);
+    }
+
+    private static SeatZone zoneOf(int row, int rows) {
+        if (rows >= 10 && row == 0) return SeatZone.SUPER_PROMO;
+        if (rows >= 5 && row < 3) return SeatZone.PROMO;
+        if (rows >= 6 && row >= rows - 2) return SeatZone.VIP;
+        return SeatZone.STANDARD;
+    }
+
+    private void scheduleHall(Cinema cinema, Hall hall, List<Movie> movies, double[] popularity, SplittableRandom random) {
+        int days = config.weeks() * 7;
+        for (int d = 0; d < days; d++) {
+            LocalDate day = config.firstDay().plusDays(d);
+            LocalDateTime after = day.atTime(FIRST_SHOW);
+            while (!after.toLocalTime().isAfter(LAST_SHOW) && after.toLocalDate().equals(day)) {
+                Movie movie = movies.get(pick(popularity, random.nextDouble()));
+                Duration length = Duration.ofMinutes(movie.getDurationMin()).plus(CLEANING);
+                LocalDateTime start = cinema.findNextFreeSlot(hall, after, length);
+                cinema.schedule(new Screening(movie, hall, start, format(random), clazz(hall, random)));
+                after = roundUpToQuarter(start.plus(length));
+            }
+        }
+    }
+
+    private static ScreeningFormat format(SplittableRandom random) {
+        return random.nextInt(4) == 0 ? ScreeningFormat.THREE_D : ScreeningFormat.TWO_D;
+    }
+
+    private static ScreeningClass clazz(Hall hall, SplittableRandom random) {
+        return hall.getSeatCount() < 120 && random.nextInt(3) == 0 ? ScreeningClass.VIP : ScreeningClass.STANDARD;
+    }
+
+    private static LocalDateTime roundUpToQuarter(LocalDateTime t) {
+        int minute = t.getMinute();
+        int rounded = (minute + 14) / 15 * 15;
+        return t.withSecond(0).withNano(0).withMinute(0).plusMinutes(rounded);
+    }
+
+    /**
+     * Dystrybuanta rozkładu Zipfa: element k (od 0) ma wagę 1 / (k + 1)^exponent.
+     */
+    static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+        return cumulative;
+    }
+
+    static int pick(double[] cumulative, double u) {
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] < u) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,37 @@
+package pl.multiplex.journal;
+
+/**
+ * Rodzaje zdarzeń zapisywanych w dzienniku. Kod to pierwszy bajt rekordu – nie zmieniać istniejących wartości.
+ */
+enum EventType {
+    CINEMA_ADDED(1),
+    CINEMA_REMOVED(2),
+    HALL_ADDED(3),
+    SCHEDULED(4),
+    UNSCHEDULED(5),
+    RESERVED(6),
+    RESERVATION_CANCELLED(7),
+    SOLD(8);
+
+    private static final EventType[] BY_CODE = new EventType[9];
+
+    static {
+        for (EventType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    final int code;
+
+    EventType(int code) {
+        this.code = code;
+    }
+
+    static EventType of(int code) {
+        EventType type = code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (type == null) {
+            throw new IllegalStateException("Unknown journal event type: " + code);
+        }
+        return type;
+    }
+}
@@ -0,0 +1,492 @@
+package pl.multiplex.journal;
+
+import pl.multiplex.network.*;
+import pl.multiplex.sales.*;
+import pl.multiplex.screening.*;
+import pl.multiplex.shared.Money;
+import pl.multiplex.shared.SeatId;
+import pl.multiplex.shared.SeatZone;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Trwały dziennik zdarzeń sieci: struktura (kina, sale, repertuar) i sprzedaż (rezerwacje, anulowania, zakupy).
+ * <p>
+ * Typowe użycie przy starcie aplikacji:
+ * <pre>
+ * NetworkJournal journal = NetworkJournal.open(dir);
+ * MultiplexNetwork network = journal.replay();   // odtworzenie stanu sprzed restartu
+ * journal.attach(network);                       // od teraz każda zmiana trafia do dziennika
+ * </pre>
+ * Zapis zdarzenia to zakodowanie rekordu w buforze wątku i skopiowanie go do segmentu mapowanego w pamięć
+ * (patrz SegmentedJournal) – bez wywołań systemowych na ścieżce reserveSeats/buyTickets.
+ * Na dysk zdarzenia trafiają grupowo co flushInterval, więc po awarii całego systemu operacyjnego
+ * można stracić zdarzenia z ostatniego okresu; {@link #sync()} daje gwarancję od razu.
+ * <p>
+ * Zdarzenia z różnych wątków mogą trafić do dziennika w innej kolejności niż zmiany stanu
+ * (np. anulowanie przed samą rezerwacją, albo rezerwacja miejsca przed anulowaniem poprzedniej rezerwacji
+ * tego miejsca) – odtwarzanie i kompaktowanie to tolerują: rezerwację, której miejsca są jeszcze zajęte,
+ * odkładamy i ponawiamy po kolejnych anulowaniach w tym seansie.
+ * <p>
+ * Odtworzone rezerwacje nie mają jeszcze terminu wygaśnięcia – po replay() trzeba podpiąć
+ * {@link ReservationExpiryWheel#attach(MultiplexNetwork)}, które uzbraja je według czasu utworzenia.
+ */
+public final class NetworkJournal implements NetworkListener, ScreeningListener, AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(10);
+
+    private static final int CUSTOMER = 1;
+    private static final int GUEST = 2;
+
+    private final SegmentedJournal journal;
+    private final ThreadLocal<RecordWriter> writers = ThreadLocal.withInitial(RecordWriter::new);
+
+    private NetworkJournal(SegmentedJournal journal) {
+        this.journal = journal;
+    }
+
+    public static NetworkJournal open(Path directory) {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    public static NetworkJournal open(Path directory, int segmentSize, Duration flushInterval) {
+        return new NetworkJournal(SegmentedJournal.open(directory, segmentSize, flushInterval));
+    }
+
+    /**
+     * Buduje nową sieć ze wszystkich zdarzeń dziennika. Sieć nie jest jeszcze podpięta – patrz attach.
+     */
+    public MultiplexNetwork replay() {
+        Replayer replayer = new Replayer();
+        journal.forEach(replayer::apply);
+        return replayer.network;
+    }
+
+    /**
+     * Zaczyna zapisywać zmiany sieci. Stan sieci powinien odpowiadać dziennikowi (zwykle: wynik replay()).
+     * Do pustego dziennika zapisujemy najpierw kina, które sieć już ma.
+     */
+    public void attach(MultiplexNetwork network) {
+        Objects.requireNonNull(network, "network cannot be null");
+        if (journal.isEmpty()) {
+            for (Cinema cinema : network.getCinemas()) {
+                onCinemaAdded(cinema);
+            }
+        }
+        network.addNetworkListener(this);
+        network.addScreeningListener(this);
+    }
+
+    public void detach(MultiplexNetwork network) {
+        network.removeNetworkListener(this);
+        network.removeScreeningListener(this);
+    }
+
+    public void sync() {
+        journal.sync();
+    }
+
+    /**
+     * Usuwa z dziennika zdarzenia, które nie wpływają już na stan: pary rezerwacja + anulowanie,
+     * seanse zdjęte z repertuaru i kina usunięte z sieci (razem z ich salami i sprzedażą).
+     */
+    public void compact() {
+        journal.compact(NetworkJournal::liveRecords);
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    // -------------------
+    // NetworkListener
+    // -------------------
+
+    @Override
+    public void onCinemaAdded(Cinema cinema) {
+        append(writer(EventType.CINEMA_ADDED)
+                .putString(cinema.getName())
+                .putString(cinema.getAddress()));
+        for (Hall hall : cinema.getHalls()) {
+            onHallAdded(cinema, hall);
+        }
+        for (Screening screening : cinema.getScreenings()) {
+            onScheduled(cinema, screening);
+        }
+    }
+
+    @Override
+    public void onCinemaRemoved(Cinema cinema) {
+        append(writer(EventType.CINEMA_REMOVED).putString(cinema.getName()));
+    }
+
+    @Override
+    public void onHallAdded(Cinema cinema, Hall hall) {
+        RecordWriter w = writer(EventType.HALL_ADDED)
+                .putString(cinema.getName())
+                .putString(hall.getName())
+                .putInt(hall.getSeatCount());
+        for (int ordinal = 0; ordinal < hall.getSeatCount(); ordinal++) {
+            Seat seat = hall.seatAt(ordinal);
+            putSeatId(w, seat.getId());
+            w.putString(seat.getZone().name());
+        }
+        append(w);
+    }
+
+    @Override
+    public void onScheduled(Cinema cinema, Screening screening) {
+        RecordWriter w = writer(EventType.SCHEDULED)
+                .putString(cinema.getName())
+                .putString(screening.getScreeningId())
+                .putString(screening.getHall().getName());
+        putMovie(w, screening.getMovie());
+        w.putTime(screening.getStart())
+                .putString(screening.getFormat().name())
+                .putString(screening.getClazz().name());
+        append(w);
+    }
+
+    @Override
+    public void onUnscheduled(Cinema cinema, Screening screening) {
+        append(writer(EventType.UNSCHEDULED)
+                .putString(cinema.getName())
+                .putString(screening.getScreeningId()));
+    }
+
+    // -------------------
+    // ScreeningListener
+    // -------------------
+
+    @Override
+    public void onReserved(Screening screening, Reservation reservation) {
+        RecordWriter w = writer(EventType.RESERVED)
+                .putString(screening.getScreeningId())
+                .putString(reservation.getReservationId());
+        putBuyer(w, reservation.getBuyer());
+        w.putTime(reservation.getCreatedAt())
+                .putInt(reservation.getSeatIds().size());
+        for (SeatId seatId : reservation.getSeatIds()) {
+            putSeatId(w, seatId);
+        }
+        append(w);
+    }
+
+    @Override
+    public void onReservationCancelled(Screening screening, Reservation reservation) {
+        append(writer(EventType.RESERVATION_CANCELLED)
+                .putString(screening.getScreeningId())
+                .putString(reservation.getReservationId()));
+    }
+
+    @Override
+    public void onTicketsSold(Screening screening, TicketOrder order) {
+        RecordWriter w = writer(EventType.SOLD)
+                .putString(screening.getScreeningId())
+                .putString(order.getOrderId());
+        putBuyer(w, order.getBuyer());
+        w.putTime(order.getCreatedAt())
+                .putInt(order.getTickets().size());
+        for (Ticket ticket : order.getTickets()) {
+            w.putString(ticket.getTicketId());
+            putSeatId(w, ticket.getSeatId());
+            w.putLong(ticket.getPrice().toMinorUnits())
+                    .putString(ticket.getPrice().currency());
+        }
+        append(w);
+    }
+
+    // -------------------
+    // encoding
+    // -------------------
+
+    private RecordWriter writer(EventType type) {
+        return writers.get().reset().putByte(type.code);
+    }
+
+    private void append(RecordWriter writer) {
+        journal.append(writer.payload());
+    }
+
+    private static void putSeatId(RecordWriter w, SeatId seatId) {
+        w.putString(seatId.row()).putInt(seatId.number());
+    }
+
+    private static void putBuyer(RecordWriter w, Buyer buyer) {
+        if (buyer instanceof Customer customer) {
+            w.putByte(CUSTOMER)
+                    .putString(customer.getCustomerId())
+                    .putString(customer.getFirstName())
+                    .putString(customer.getLastName());
+        } else {
+            w.putByte(GUEST).putString(buyer.getDisplayName());
+        }
+    }
+
+    private static void putMovie(RecordWriter w, Movie movie) {
+        w.putString(movie.getTitle())
+                .putString(movie.getDirector())
+                .putInt(movie.getDurationMin())
+                .putString(movie.getLanguage().name())
+                .putString(movie.getAgeRating().name())
+                .putInt(movie.getThemes().size());
+        for (String theme : movie.getThemes()) {
+            w.putString(theme);
+        }
+    }
+
+    private static SeatId getSeatId(RecordReader r) {
+        return new SeatId(r.getString(), r.getInt());
+    }
+
+    // -------------------
+    // compaction
+    // -------------------
+
+    private static List<ByteBuffer> liveRecords(List<ByteBuffer> records) {
+        // stan końcowy: czy kino / seans jeszcze istnieje, które rezerwacje anulowano
+        Map<String, Boolean> cinemaAlive = new HashMap<>();
+        Map<String, String> cinemaOfScreening = new HashMap<>();
+        Map<String, Boolean> screeningAlive = new HashMap<>();
+        Set<String> reserved = new HashSet<>();
+        Set<String> cancelled = new HashSet<>();
+
+        for (ByteBuffer record : records) {
+            RecordReader r = new RecordReader(record.duplicate());
+            switch (EventType.of(r.getByte())) {
+                case CINEMA_ADDED -> cinemaAlive.put(cinemaKey(r.getString()), true);
+                case CINEMA_REMOVED -> cinemaAlive.put(cinemaKey(r.getString()), false);
+                case SCHEDULED -> {
+                    String cinema = cinemaKey(r.getString());
+                    String screeningId = r.getString();
+                    cinemaOfScreening.put(screeningId, cinema);
+                    screeningAlive.put(screeningId, true);
+                }
+                case UNSCHEDULED -> {
+                    r.getString();
+                    screeningAlive.put(r.getString(), false);
+                }
+                case RESERVED -> {
+                    r.getString();
+                    reserved.add(r.getString());
+                }
+                case RESERVATION_CANCELLED -> {
+                    r.getString();
+                    cancelled.add(r.getString());
+                }
+                case HALL_ADDED, SOLD -> {
+                }
+            }
+        }
+        cancelled.retainAll(reserved);
+
+        List<ByteBuffer> live = new ArrayList<>();
+        for (ByteBuffer record : records) {
+            RecordReader r = new RecordReader(record.duplicate());
+            boolean keep = switch (EventType.of(r.getByte())) {
+                case CINEMA_ADDED, CINEMA_REMOVED, HALL_ADDED -> cinemaAlive.getOrDefault(cinemaKey(r.getString()), false);
+                case SCHEDULED, UNSCHEDULED -> {
+                    String cinema = cinemaKey(r.getString());
+                    yield cinemaAlive.getOrDefault(cinema, false) && screeningAlive.getOrDefault(r.getString(), false);
+                }
+                case RESERVED, RESERVATION_CANCELLED -> {
+                    String screeningId = r.getString();
+                    yield isLive(screeningId, cinemaOfScreening, screeningAlive, cinemaAlive)
+                            && !cancelled.contains(r.getString());
+                }
+                case SOLD -> isLive(r.getString(), cinemaOfScreening, screeningAlive, cinemaAlive);
+            };
+            if (keep) live.add(record);
+        }
+        return live;
+    }
+
+    private static boolean isLive(String screeningId, Map<String, String> cinemaOfScreening,
+                                  Map<String, Boolean> screeningAlive, Map<String, Boolean> cinemaAlive) {
+        String cinema = cinemaOfScreening.get(screeningId);
+        return cinema != null
+                && screeningAlive.getOrDefault(screeningId, false)
+                && cinemaAlive.getOrDefault(cinema, false);
+    }
+
+    private static String cinemaKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // -------------------
+    // replay
+    // -------------------
+
+    /**
+     * Stosuje zdarzenia przez zwykłe publiczne API sieci. Obiekty współdzielone (klienci, filmy, seanse)
+     * odtwarzamy raz i używamy ponownie – tak jak były współdzielone przed restartem.
+     */
+    private static final class Replayer {
+
+        private final MultiplexNetwork network = new MultiplexNetwork();
+        private final Map<String, Screening> screeningsById = new HashMap<>();
+        private final Map<String, Customer> customersById = new HashMap<>();
+        private final Map<String, Movie> moviesByKey = new HashMap<>();
+        private final Set<String> cancelledEarly = new HashSet<>();
+        private final Map<Screening, List<Reservation>> deferred = new HashMap<>();
+
+        private void apply(ByteBuffer record) {
+            RecordReader r = new RecordReader(record);
+            EventType type = EventType.of(r.getByte());
+            try {
+                switch (type) {
+                    case CINEMA_ADDED -> network.addCinema(new Cinema(r.getString(), r.getString()));
+                    case CINEMA_REMOVED -> network.removeCinema(network.findCinema(r.getString()));
+                    case HALL_ADDED -> applyHallAdded(r);
+                    case SCHEDULED -> applyScheduled(r);
+                    case UNSCHEDULED -> network.findCinema(r.getString()).unschedule(screening(r.getString()));
+                    case RESERVED -> applyReserved(r);
+                    case RESERVATION_CANCELLED -> applyCancelled(r);
+                    case SOLD -> applySold(r);
+                }
+            } catch (RuntimeException ex) {
+                throw new IllegalStateException("Cannot replay journal event " + type, ex);
+            }
+        }
+
+        private void applyHallAdded(RecordReader r) {
+            Cinema cinema = network.findCinema(r.getString());
+            String hallName = r.getString();
+            int seatCount = r.getInt();
+            List<Seat> seats = new ArrayList<>(seatCount);
+            for (int i = 0; i < seatCount; i++) {
+                seats.add(new Seat(getSeatId(r), SeatZone.valueOf(r.getString())));
+            }
+            cinema.addHall(new Hall(hallName, seats));
+        }
+
+        private void applyScheduled(RecordReader r) {
+            Cinema cinema = network.findCinema(r.getString());
+            String screeningId = r.getString();
+            Hall hall = cinema.findHall(r.getString());
+            Movie movie = movie(r);
+            LocalDateTime start = r.getTime();
+            ScreeningFormat format = ScreeningFormat.valueOf(r.getString());
+            ScreeningClass clazz = ScreeningClass.valueOf(r.getString());
+
+            // ten sam obiekt seansu może wrócić do repertuaru (razem ze swoim stanem miejsc)
+            Screening screening = screeningsById.computeIfAbsent(screeningId,
+                    id -> new Screening(id, movie, hall, start, format, clazz));
+            cinema.schedule(screening);
+        }
+
+        private void applyReserved(RecordReader r) {
+            Screening screening = screening(r.getString());
+            String reservationId = r.getString();
+            Buyer buyer = buyer(r);
+            LocalDateTime createdAt = r.getTime();
+            int count = r.getInt();
+            Set<SeatId> seatIds = new LinkedHashSet<>();
+            for (int i = 0; i < count; i++) {
+                seatIds.add(getSeatId(r));
+            }
+
+            if (cancelledEarly.remove(reservationId)) return;
+            Reservation reservation = new Reservation(reservationId, screening, buyer, seatIds, createdAt);
+            if (!tryRestore(reservation)) {
+                // miejsce trzyma jeszcze rezerwacja, której anulowanie zapisało się później
+                deferred.computeIfAbsent(screening, s -> new ArrayList<>()).add(reservation);
+            }
+        }
+
+        private void applyCancelled(RecordReader r) {
+            Screening screening = screening(r.getString());
+            String reservationId = r.getString();
+            if (screening.expireReservation(reservationId)) {
+                retryDeferred(screening);
+                return;
+            }
+
+            List<Reservation> waiting = deferred.get(screening);
+            if (waiting == null || !waiting.removeIf(res -> res.getReservationId().equals(reservationId))) {
+                cancelledEarly.add(reservationId);
+            }
+        }
+
+        /**
+         * Ponawia odłożone rezerwacje seansu w kolejności dziennika. Te, których miejsca zostały w międzyczasie
+         * sprzedane (zakup zapisał się przed rezerwacją), czekają dalej i nie trafiają do odtworzonej sieci.
+         */
+        private void retryDeferred(Screening screening) {
+            List<Reservation> waiting = deferred.get(screening);
+            if (waiting == null) return;
+            waiting.removeIf(this::tryRestore);
+            if (waiting.isEmpty()) {
+                deferred.remove(screening);
+            }
+        }
+
+        private boolean tryRestore(Reservation reservation) {
+            try {
+                reservation.getScreening().restoreReservation(reservation);
+                return true;
+            } catch (IllegalStateException ex) {
+                return false;
+            }
+        }
+
+        private void applySold(RecordReader r) {
+            Screening screening = screening(r.getString());
+            String orderId = r.getString();
+            Buyer buyer = buyer(r);
+            LocalDateTime createdAt = r.getTime();
+            int count = r.getInt();
+            List<Ticket> tickets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String ticketId = r.getString();
+                SeatId seatId = getSeatId(r);
+                long minorUnits = r.getLong();
+                Money price = Money.ofMinor(minorUnits, r.getString());
+                tickets.add(new Ticket(ticketId, screening, seatId, buyer, price));
+            }
+            screening.restoreOrder(new TicketOrder(orderId, buyer, tickets, createdAt));
+        }
+
+        private Screening screening(String screeningId) {
+            Screening screening = screeningsById.get(screeningId);
+            if (screening == null) {
+                throw new NoSuchElementException("Screening not found in journal: " + screeningId);
+            }
+            return screening;
+        }
+
+        private Buyer buyer(RecordReader r) {
+            int kind = r.getByte();
+            if (kind == CUSTOMER) {
+                String customerId = r.getString();
+                String firstName = r.getString();
+                String lastName = r.getString();
+                return customersById.computeIfAbsent(customerId, id -> new Customer(id, firstName, lastName));
+            }
+            return new Guest(r.getString());
+        }
+
+        private Movie movie(RecordReader r) {
+            String title = r.getString();
+            String director = r.getString();
+            int durationMin = r.getInt();
+            LanguageOption language = LanguageOption.valueOf(r.getString());
+            AgeRating ageRating = AgeRating.valueOf(r.getString());
+            int themeCount = r.getInt();
+            List<String> themes = new ArrayList<>(themeCount);
+            for (int i = 0; i < themeCount; i++) {
+                themes.add(r.getString());
+            }
+
+            String key = (title + "|" + director).toLowerCase(Locale.ROOT);
+            return moviesByKey.computeIfAbsent(key,
+                    k -> new Movie(title, director, durationMin, language, themes, ageRating));
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package pl.multiplex.journal;
+
+import pl.multiplex.network.*;
+import pl.multiplex.sales.*;
+import pl.multiplex.screening.*;
+import pl.multiplex.shared.Money;
+import pl.multiplex.shared.SeatId;
+import pl.multiplex.shared.SeatZone;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Binarny snapshot całej sieci – szybki zimny start bez odtwarzania historii zdarzeń.
+ * <p>
+ * Układ pliku: nagłówek (MAGIC, VERSION), tablica napisów, a dalej wyłącznie liczby i indeksy do tablic:
+ * filmy, układy miejsc, klienci, kina (sale, seanse ze stanem miejsc i rezerwacjami) oraz historie biletów klientów.
+ * <ul>
+ *     <li>każdy napis (nazwy, rzędy, identyfikatory, nazwy enumów) zapisany jest raz,</li>
+ *     <li>film zapisany jest raz, nawet gdy grają go wszystkie kina,</li>
+ *     <li>układ miejsc (SeatLayout) zapisany jest raz dla sal o identycznym układzie,</li>
+ *     <li>stan miejsc seansu to bitmapa po 2 bity na miejsce (Screening.exportSeatStates),</li>
+ *     <li>przychód seansu per strefa (od wersji 2) – z liczników ScreeningOccupancy,</li>
+ *     <li>bilet klienta (od wersji 3) to TicketRecord – także na seanse, których już nie ma w sieci.</li>
+ * </ul>
+ * Numery porządkowe miejsc (bitmapa, rezerwacje, stare bilety) odnoszą się do kolejności miejsc zapisanej w układzie.
+ * Od wersji 4 to kolejność rzędami z SeatLayout; starsze pliki mogą mieć kolejność dodawania miejsc do sali,
+ * więc przy odczycie przemapowujemy je na układ.
+ * Odczyt mapuje plik w pamięć i czyta go sekwencyjnie; stan miejsc trafia do seansu jednym kopiowaniem,
+ * bez rezerwowania miejsc po kolei.
+ * Zapis idzie do pliku tymczasowego podmienianego na końcu, więc przerwany zapis nie psuje poprzedniego snapshotu.
+ */
+public record NetworkSnapshot(MultiplexNetwork network, List<Customer> customers) {
+
+    private static final int MAGIC = 0x4D505853; // "MPXS"
+    private static final int VERSION = 4; // 2: przychód seansu per strefa, 3: bilety jako TicketRecord, 4: miejsca rzędami
+
+    private static final int CUSTOMER = 1;
+    private static final int GUEST = 2;
+
+    public NetworkSnapshot {
+        Objects.requireNonNull(network, "network cannot be null");
+        customers = List.copyOf(Objects.requireNonNull(customers, "customers cannot be null"));
+    }
+
+    /**
+     * Zapisuje sieć i klientów (razem z całą historią ich biletów).
+     * Klienci, którzy mają tylko rezerwacje, trafiają do snapshotu automatycznie.
+     */
+    public static void write(Path file, MultiplexNetwork network, Collection<Customer> customers) {
+        Objects.requireNonNull(file, "file cannot be null");
+        Objects.requireNonNull(network, "network cannot be null");
+        Objects.requireNonNull(customers, "customers cannot be null");
+
+        Encoder encoder = new Encoder(network, customers);
+        ByteBuffer body = encoder.encode();
+
+        RecordWriter header = new RecordWriter()
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(encoder.strings.size());
+        for (String s : encoder.strings.keySet()) {
+            header.putString(s);
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer[] parts = {header.payload(), body};
+                while (parts[1].hasRemaining()) {
+                    channel.write(parts);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write snapshot " + file, ex);
+        }
+    }
+
+    public static NetworkSnapshot read(Path file) {
+        Objects.requireNonNull(file, "file cannot be null");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Decoder(new RecordReader(buffer)).decode();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read snapshot " + file, ex);
+        }
+    }
+
+    // -------------------
+    // encoding
+    // -------------------
+
+    private static final class Encoder {
+
+        private final MultiplexNetwork network;
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final List<Movie> movieList = new ArrayList<>();
+        private final Map<String, Integer> movieIndexByKey = new HashMap<>();
+        private final Map<Movie, Integer> movies = new IdentityHashMap<>();
+        private final Map<SeatLayout, Integer> layouts = new LinkedHashMap<>();
+        private final Map<Customer, Integer> customers = new LinkedHashMap<>();
+
+        private Encoder(MultiplexNetwork network, Collection<Customer> customers) {
+            this.network = network;
+            for (Customer customer : customers) {
+                this.customers.putIfAbsent(Objects.requireNonNull(customer, "customer cannot be null"), this.customers.size());
+            }
+        }
+
+        private ByteBuffer encode() {
+            // pierwsze przejście: tablice współdzielone (filmy, układy, klienci z rezerwacji)
+            for (Cinema cinema : network.getCinemas()) {
+                for (Hall hall : cinema.getHalls()) {
+                    layouts.putIfAbsent(hall.getLayout(), layouts.size());
+                }
+                for (Screening screening : cinema.getScreenings()) {
+                    movies.computeIfAbsent(screening.getMovie(), this::movieIndex);
+                    for (Reservation reservation : screening.getReservations()) {
+                        if (reservation.getBuyer() instanceof Customer customer) {
+                            customers.putIfAbsent(customer, customers.size());
+                        }
+                    }
+                }
+            }
+
+            RecordWriter w = new RecordWriter();
+            writeMovies(w);
+            writeLayouts(w);
+            writeCustomers(w);
+            writeCinemas(w);
+            writeTickets(w);
+            return w.payload();
+        }
+
+        private void writeMovies(RecordWriter w) {
+            w.putInt(movieList.size());
+            for (Movie movie : movieList) {
+                w.putInt(str(movie.getTitle()))
+                        .putInt(str(movie.getDirector()))
+                        .putInt(movie.getDurationMin())
+                        .putInt(str(movie.getLanguage().name()))
+                        .putInt(str(movie.getAgeRating().name()))
+                        .putInt(movie.getThemes().size());
+                for (String theme : movie.getThemes()) {
+                    w.putInt(str(theme));
+                }
+            }
+        }
+
+        private void writeLayouts(RecordWriter w) {
+            w.putInt(layouts.size());
+            for (SeatLayout layout : layouts.keySet()) {
+                w.putInt(layout.getSeatCount());
+                for (Seat seat : layout.getSeatList()) {
+                    w.putInt(str(seat.getId().row()))
+                            .putInt(seat.getId().number())
+                            .putInt(str(seat.getZone().name()));
+                }
+            }
+        }
+
+        private void writeCustomers(RecordWriter w) {
+            w.putInt(customers.size());
+            for (Customer customer : customers.keySet()) {
+                w.putInt(str(customer.getCustomerId()))
+                        .putInt(str(customer.getFirstName()))
+                        .putInt(str(customer.getLastName()));
+            }
+        }
+
+        private void writeCinemas(RecordWriter w) {
+            List<Cinema> cinemas = network.getCinemas();
+            w.putInt(cinemas.size());
+            for (Cinema cinema : cinemas) {
+                w.putInt(str(cinema.getName()))
+                        .putInt(str(cinema.getAddress()));
+
+                List<Hall> halls = cinema.getHalls();
+                w.putInt(halls.size());
+                for (Hall hall : halls) {
+                    w.putInt(str(hall.getName()))
+                            .putInt(layouts.get(hall.getLayout()));
+                }
+
+                List<Screening> screenings = cinema.getScreenings();
+                w.putInt(screenings.size());
+                for (Screening screening : screenings) {
+                    writeScreening(w, screening, hallIndex(halls, screening.getHall()));
+                }
+            }
+        }
+
+        private void writeScreening(RecordWriter w, Screening screening, int hallIndex) {
+            w.putInt(str(screening.getScreeningId()))
+                    .putInt(hallIndex)
+                    .putInt(movies.get(screening.getMovie()))
+                    .putTime(screening.getStart())
+                    .putInt(str(screening.getFormat().name()))
+                    .putInt(str(screening.getClazz().name()))
+                    .putBytes(screening.exportSeatStates());
+            writeRevenue(w, screening.getOccupancy());
+
+            Collection<Reservation> reservations = List.copyOf(screening.getReservations());
+            w.putInt(reservations.size());
+            Hall hall = screening.getHall();
+            for (Reservation reservation : reservations) {
+                w.putInt(str(reservation.getReservationId()));
+                writeBuyer(w, reservation.getBuyer());
+                w.putTime(reservation.getCreatedAt())
+                        .putInt(reservation.getSeatIds().size());
+                for (SeatId seatId : reservation.getSeatIds()) {
+                    w.putInt(hall.ordinalOf(seatId));
+                }
+            }
+        }
+
+        private static int hallIndex(List<Hall> halls, Hall hall) {
+            int index = halls.indexOf(hall);
+            for (int i = 0; index < 0 && i < halls.size(); i++) {
+                if (halls.get(i).getName().equalsIgnoreCase(hall.getName())) index = i;
+            }
+            return index;
+        }
+
+        private void writeRevenue(RecordWriter w, ScreeningOccupancy occupancy) {
+            List<SeatZone> zones = new ArrayList<>();
+            for (SeatZone zone : SeatZone.values()) {
+                if (occupancy.getRevenueMinor(zone) != 0) zones.add(zone);
+            }
+            w.putInt(zones.size());
+            for (SeatZone zone : zones) {
+                Money revenue = occupancy.getRevenue(zone);
+                w.putInt(str(zone.name()))
+                        .putLong(revenue.toMinorUnits())
+                        .putInt(str(revenue.currency()));
+            }
+        }
+
+        private void writeTickets(RecordWriter w) {
+            for (Customer customer : customers.keySet()) {
+                List<TicketRecord> tickets = customer.getTickets();
+                w.putInt(tickets.size());
+                for (TicketRecord ticket : tickets) {
+                    Money price = ticket.getPrice();
+                    w.putInt(str(ticket.getTicketId()))
+                            .putInt(str(ticket.getScreeningId()))
+                            .putInt(str(ticket.getMovieTitle()))
+                            .putTime(ticket.getScreeningStart())
+                            .putInt(str(ticket.getSeatId().row()))
+                            .putInt(ticket.getSeatId().number())
+                            .putLong(price.toMinorUnits())
+                            .putInt(str(price.currency()))
+                            .putTime(ticket.getPurchasedAt());
+                }
+            }
+        }
+
+        private void writeBuyer(RecordWriter w, Buyer buyer) {
+            if (buyer instanceof Customer customer) {
+                w.putByte(CUSTOMER).putInt(customers.get(customer));
+            } else {
+                w.putByte(GUEST).putInt(str(buyer.getDisplayName()));
+            }
+        }
+
+        private int str(String s) {
+            Integer index = strings.get(s);
+            if (index == null) {
+                index = strings.size();
+                strings.put(s, index);
+            }
+            return index;
+        }
+
+        /**
+         * Ten sam film (tytuł + reżyser) zapisujemy raz, nawet jeśli kina trzymają osobne obiekty.
+         */
+        private int movieIndex(Movie movie) {
+            return movieIndexByKey.computeIfAbsent(movieKey(movie), k -> {
+                movieList.add(movie);
+                return movieList.size() - 1;
+            });
+        }
+
+        private static String movieKey(Movie movie) {
+            return (movie.getTitle() + "|" + movie.getDirector()).toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // -------------------
+    // decoding
+    // -------------------
+
+    private static final class Decoder {
+
+        private final RecordReader r;
+        private int version;
+        private String[] strings;
+        private Movie[] movies;
+        private SeatLayout[] layouts;
+        private int[][] layoutRemaps;
+        private final Map<Hall, int[]> hallRemaps = new IdentityHashMap<>();
+        private Customer[] customers;
+        private final Map<String, Screening> screeningsById = new HashMap<>();
+
+        private Decoder(RecordReader r) {
+            this.r = r;
+        }
+
+        private NetworkSnapshot decode() {
+            if (r.getInt() != MAGIC) {
+                throw new IllegalStateException("Not a network snapshot file");
+            }
+            version = r.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalStateException("Unsupported snapshot version: " + version);
+            }
+
+            readStrings();
+            readMovies();
+            readLayouts();
+            readCustomers();
+            MultiplexNetwork network = readCinemas();
+            readTickets();
+            return new NetworkSnapshot(network, Arrays.asList(customers));
+        }
+
+        private void readStrings() {
+            strings = new String[r.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = r.getString();
+            }
+        }
+
+        private void readMovies() {
+            movies = new Movie[r.getInt()];
+            for (int i = 0; i < movies.length; i++) {
+                String title = str();
+                String director = str();
+                int durationMin = r.getInt();
+                LanguageOption language = LanguageOption.valueOf(str());
+                AgeRating ageRating = AgeRating.valueOf(str());
+                String[] themes = new String[r.getInt()];
+                for (int t = 0; t < themes.length; t++) {
+                    themes[t] = str();
+                }
+                movies[i] = new Movie(title, director, durationMin, language, Arrays.asList(themes), ageRating);
+            }
+        }
+
+        private void readLayouts() {
+            layouts = new SeatLayout[r.getInt()];
+            layoutRemaps = new int[layouts.length][];
+            for (int i = 0; i < layouts.length; i++) {
+                Seat[] seats = new Seat[r.getInt()];
+                for (int s = 0; s < seats.length; s++) {
+                    String row = str();
+                    int number = r.getInt();
+                    seats[s] = new Seat(new SeatId(row, number), SeatZone.valueOf(str()));
+                }
+                layouts[i] = SeatLayout.of(Arrays.asList(seats));
+                layoutRemaps[i] = remap(seats, layouts[i]);
+            }
+        }
+
+        /**
+         * Numer porządkowy z pliku → numer w układzie, albo null, gdy kolejności się zgadzają (zawsze od wersji 4).
+         */
+        private static int[] remap(Seat[] stored, SeatLayout layout) {
+            int[] map = new int[stored.length];
+            boolean identity = true;
+            for (int i = 0; i < stored.length; i++) {
+                map[i] = layout.ordinalOf(stored[i].getId());
+                identity &= map[i] == i;
+            }
+            return identity ? null : map;
+        }
+
+        private static ByteBuffer remapStates(ByteBuffer packed, int[] map) {
+            byte[] remapped = new byte[packed.remaining()];
+            int base = packed.position();
+            for (int i = 0; i < map.length; i++) {
+                int status = (packed.get(base + (i >>> 2)) >>> ((i & 3) << 1)) & 3;
+                int target = map[i];
+                remapped[target >>> 2] |= (byte) (status << ((target & 3) << 1));
+            }
+            return ByteBuffer.wrap(remapped);
+        }
+
+        private static Seat seatAt(Hall hall, int[] map, int storedOrdinal) {
+            return hall.seatAt(map == null ? storedOrdinal : map[storedOrdinal]);
+        }
+
+        private void readCustomers() {
+            customers = new Customer[r.getInt()];
+            for (int i = 0; i < customers.length; i++) {
+                customers[i] = new Customer(str(), str(), str());
+            }
+        }
+
+        private MultiplexNetwork readCinemas() {
+            MultiplexNetwork network = new MultiplexNetwork();
+            int cinemaCount = r.getInt();
+            for (int c = 0; c < cinemaCount; c++) {
+                Cinema cinema = new Cinema(str(), str());
+
+                Hall[] halls = new Hall[r.getInt()];
+                for (int h = 0; h < halls.length; h++) {
+                    String name = str();
+                    int layout = r.getInt();
+                    halls[h] = new Hall(name, layouts[layout]);
+                    if (layoutRemaps[layout] != null) {
+                        hallRemaps.put(halls[h], layoutRemaps[layout]);
+                    }
+                    cinema.addHall(halls[h]);
+                }
+
+                int screeningCount = r.getInt();
+                for (int s = 0; s < screeningCount; s++) {
+                    cinema.schedule(readScreening(halls));
+                }
+                network.addCinema(cinema);
+            }
+            return network;
+        }
+
+        private Screening readScreening(Hall[] halls) {
+            String screeningId = str();
+            Hall hall = halls[r.getInt()];
+            Movie movie = movies[r.getInt()];
+            LocalDateTime start = r.getTime();
+            ScreeningFormat format = ScreeningFormat.valueOf(str());
+            ScreeningClass clazz = ScreeningClass.valueOf(str());
+            Screening screening = new Screening(screeningId, movie, hall, start, format, clazz);
+            int[] map = hallRemaps.get(hall);
+            ByteBuffer seatStates = r.getBytes();
+            if (map != null) {
+                seatStates = remapStates(seatStates, map);
+            }
+            Map<SeatZone, Money> revenue = new EnumMap<>(SeatZone.class);
+            int revenueZones = version >= 2 ? r.getInt() : 0;
+            for (int i = 0; i < revenueZones; i++) {
+                SeatZone zone = SeatZone.valueOf(str());
+                long minorUnits = r.getLong();
+                revenue.put(zone, Money.ofMinor(minorUnits, str()));
+            }
+
+            Reservation[] reservations = new Reservation[r.getInt()];
+            for (int i = 0; i < reservations.length; i++) {
+                String reservationId = str();
+                Buyer buyer = readBuyer();
+                LocalDateTime createdAt = r.getTime();
+                Set<SeatId> seatIds = new LinkedHashSet<>();
+                int seatCount = r.getInt();
+                for (int s = 0; s < seatCount; s++) {
+                    seatIds.add(seatAt(hall, map, r.getInt()).getId());
+                }
+                reservations[i] = new Reservation(reservationId, screening, buyer, seatIds, createdAt);
+            }
+
+            screening.restoreSnapshot(seatStates, Arrays.asList(reservations), revenue);
+            screeningsById.put(screeningId, screening);
+            return screening;
+        }
+
+        private void readTickets() {
+            for (Customer customer : customers) {
+                int count = r.getInt();
+                List<TicketRecord> tickets = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    tickets.add(version >= 3 ? readTicket() : readLegacyTicket());
+                }
+                customer.getTicketHistory().addAll(tickets);
+            }
+        }
+
+        private TicketRecord readTicket() {
+            String ticketId = str();
+            String screeningId = str();
+            String movieTitle = str();
+            LocalDateTime start = r.getTime();
+            SeatId seatId = new SeatId(str(), r.getInt());
+            long minorUnits = r.getLong();
+            Money price = Money.ofMinor(minorUnits, str());
+            return new TicketRecord(ticketId, screeningId, movieTitle, start, seatId, price, r.getTime());
+        }
+
+        /**
+         * Wersje 1–2: bilet wskazywał seans ze snapshotu i miejsce po numerze porządkowym, bez czasu zakupu.
+         */
+        private TicketRecord readLegacyTicket() {
+            String ticketId = str();
+            Screening screening = screeningsById.get(str());
+            Hall hall = screening.getHall();
+            SeatId seatId = seatAt(hall, hallRemaps.get(hall), r.getInt()).getId();
+            long minorUnits = r.getLong();
+            Money price = Money.ofMinor(minorUnits, str());
+            return new TicketRecord(ticketId, screening.getScreeningId(), screening.getMovie().getTitle(),
+                    screening.getStart(), seatId, price, screening.getStart());
+        }
+
+        private Buyer readBuyer() {
+            int kind = r.getByte();
+            return kind == CUSTOMER ? customers[r.getInt()] : new Guest(str());
+        }
+
+        private String str() {
+            return strings[r.getInt()];
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package pl.multiplex.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Odczyt pól rekordu w tej samej kolejności, w jakiej zapisał je RecordWriter.
+ */
+final class RecordReader {
+
+    private final ByteBuffer buffer;
+
+    RecordReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    int getByte() {
+        return buffer.get();
+    }
+
+    int getInt() {
+        return buffer.getInt();
+    }
+
+    long getLong() {
+        return buffer.getLong();
+    }
+
+    /**
+     * Bajty zapisane przez RecordWriter.putBytes – jako widok na bufor, bez kopiowania.
+     */
+    ByteBuffer getBytes() {
+        int length = buffer.getInt();
+        ByteBuffer out = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return out;
+    }
+
+    LocalDateTime getTime() {
+        long seconds = buffer.getLong();
+        return LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    String getString() {
+        int length = buffer.getInt();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,72 @@
+package pl.multiplex.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Bufor do kodowania jednego rekordu dziennika. Jeden na wątek (ThreadLocal), więc bez alokacji na zapis.
+ */
+final class RecordWriter {
+
+    private ByteBuffer buffer = ByteBuffer.allocate(512);
+
+    RecordWriter reset() {
+        buffer.clear();
+        return this;
+    }
+
+    RecordWriter putByte(int value) {
+        ensure(1);
+        buffer.put((byte) value);
+        return this;
+    }
+
+    RecordWriter putInt(int value) {
+        ensure(4);
+        buffer.putInt(value);
+        return this;
+    }
+
+    RecordWriter putLong(long value) {
+        ensure(8);
+        buffer.putLong(value);
+        return this;
+    }
+
+    RecordWriter putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    RecordWriter putBytes(byte[] bytes) {
+        ensure(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    RecordWriter putTime(LocalDateTime time) {
+        return putLong(time.toEpochSecond(ZoneOffset.UTC)).putInt(time.getNano());
+    }
+
+    /**
+     * Widok na zakodowany rekord – ważny do następnego reset().
+     */
+    ByteBuffer payload() {
+        return buffer.duplicate().flip();
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package pl.multiplex.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Dziennik tylko do dopisywania, w plikach-segmentach mapowanych w pamięć (journal-0000000000000001.seg, ...).
+ * <p>
+ * Rekord: [długość int][CRC32C int][dane]. Długość 0 oznacza koniec zapisanych danych w segmencie
+ * (plik jest wstępnie wypełniony zerami). Gdy rekord nie mieści się w segmencie, otwieramy następny.
+ * <p>
+ * Zapis to skopiowanie bajtów do zmapowanego bufora pod krótką blokadą – trafiają do page cache systemu,
+ * więc przeżywają awarię JVM. Zrzut na dysk (force) robi wątek w tle co flushInterval dla wszystkich zapisów
+ * z tego okresu naraz (group commit); {@link #sync()} wymusza zrzut od razu.
+ * Przy odczycie zatrzymujemy się na pierwszym rekordzie z błędną sumą kontrolną (urwany zapis).
+ */
+public final class SegmentedJournal implements AutoCloseable {
+
+    static final int HEADER_BYTES = 8;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+    private static final String COMPACT_DIR = "compact.tmp";
+    private static final String COMPACT_DONE = "complete";
+    private static final String COMPACT_DONE_TMP = "complete.tmp";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long segmentIndex;
+    private MappedByteBuffer segment;
+    private volatile boolean dirty;
+
+    private final ScheduledExecutorService flusher;
+
+    private SegmentedJournal(Path directory, int segmentSize, Duration flushInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        try {
+            Files.createDirectories(directory);
+            recoverCompaction();
+            openLastSegment();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open journal in " + directory, ex);
+        }
+
+        if (flushInterval == null) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "journal-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            long nanos = flushInterval.toNanos();
+            flusher.scheduleWithFixedDelay(this::flushIfDirty, nanos, nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param flushInterval co ile zrzucać zapisy na dysk; null = tylko przy sync()/close()
+     */
+    public static SegmentedJournal open(Path directory, int segmentSize, Duration flushInterval) {
+        Objects.requireNonNull(directory, "directory cannot be null");
+        if (segmentSize < 1024) throw new IllegalArgumentException("segmentSize must be >= 1024");
+        return new SegmentedJournal(directory, segmentSize, flushInterval);
+    }
+
+    public void append(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (length == 0) throw new IllegalArgumentException("payload cannot be empty");
+        if (length + HEADER_BYTES > segmentSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit in a segment");
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        int checksum = (int) crc.getValue();
+
+        lock.lock();
+        try {
+            if (segment.remaining() < length + HEADER_BYTES) {
+                roll();
+            }
+            segment.putInt(length);
+            segment.putInt(checksum);
+            segment.put(payload);
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zrzuca na dysk wszystko, co zostało dopisane do tej pory.
+     */
+    public void sync() {
+        MappedByteBuffer current;
+        lock.lock();
+        try {
+            current = segment;
+            dirty = false;
+        } finally {
+            lock.unlock();
+        }
+        current.force();
+    }
+
+    /**
+     * Przechodzi po wszystkich poprawnych rekordach w kolejności zapisu.
+     * Bufor przekazany do consumer jest ważny tylko w trakcie wywołania.
+     */
+    public void forEach(Consumer<ByteBuffer> consumer) {
+        lock.lock();
+        try {
+            for (Path file : segmentFiles(directory)) {
+                if (!readSegment(file, consumer)) break;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Kompaktowanie: filter dostaje kopie wszystkich rekordów i zwraca te, które mają zostać.
+     * Nowe segmenty powstają obok, a stare są podmieniane dopiero, gdy nowe są kompletne i zrzucone na dysk.
+     * Zapisy czekają na koniec kompaktowania.
+     */
+    public void compact(UnaryOperator<List<ByteBuffer>> filter) {
+        lock.lock();
+        try {
+            List<ByteBuffer> records = new ArrayList<>();
+            forEach(record -> {
+                ByteBuffer copy = ByteBuffer.allocate(record.remaining());
+                copy.put(record).flip();
+                records.add(copy);
+            });
+            List<ByteBuffer> kept = filter.apply(records);
+
+            Path tmp = directory.resolve(COMPACT_DIR);
+            deleteRecursively(tmp);
+            try (SegmentedJournal rewritten = new SegmentedJournal(tmp, segmentSize, null)) {
+                for (ByteBuffer record : kept) {
+                    rewritten.append(record.duplicate());
+                }
+                rewritten.sync();
+            }
+            markCompactionComplete(tmp, segmentFiles(tmp).size());
+
+            segment.force();
+            segment = null;
+            recoverCompaction();
+            openLastSegment();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Journal compaction failed in " + directory, ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return segment.position() == 0 && getSegmentCount() == 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        return segmentFiles(directory).size();
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        lock.lock();
+        try {
+            if (segment != null) {
+                segment.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    private void flushIfDirty() {
+        if (dirty) {
+            sync();
+        }
+    }
+
+    private void roll() {
+        segment.force();
+        try {
+            segment = map(segmentPath(segmentIndex + 1));
+            segmentIndex++;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot roll journal segment in " + directory, ex);
+        }
+    }
+
+    private void openLastSegment() throws IOException {
+        List<Path> files = segmentFiles(directory);
+        if (files.isEmpty()) {
+            segmentIndex = 1;
+            segment = map(segmentPath(segmentIndex));
+            return;
+        }
+
+        Path last = files.get(files.size() - 1);
+        segmentIndex = indexOf(last);
+        segment = map(last);
+        segment.position(endOfRecords(segment));
+        clearTail(segment);
+    }
+
+    /**
+     * Zeruje bajty za ostatnim poprawnym rekordem (resztki urwanego zapisu). Bez tego krótszy nowy rekord
+     * zostawiłby za sobą śmieci, a po roll() odczyt uznałby segment za urwany i pominął wszystkie następne.
+     */
+    private static void clearTail(MappedByteBuffer buffer) {
+        int end = buffer.position();
+        int dirtyEnd = buffer.limit();
+        while (dirtyEnd > end && buffer.get(dirtyEnd - 1) == 0) {
+            dirtyEnd--;
+        }
+        if (dirtyEnd == end) return;
+
+        for (int i = end; i < dirtyEnd; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = Math.max(channel.size(), segmentSize);
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Pozycja za ostatnim poprawnym rekordem segmentu.
+     */
+    private static int endOfRecords(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate().position(0);
+        int end = 0;
+        while (nextRecord(view) != null) {
+            end = view.position();
+        }
+        return end;
+    }
+
+    private static boolean readSegment(Path file, Consumer<ByteBuffer> consumer) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer view = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer record;
+            while ((record = nextRecord(view)) != null) {
+                consumer.accept(record);
+            }
+            // segment kończy się zerami (normalne przejście do następnego) albo urwanym rekordem (stop)
+            return view.remaining() < HEADER_BYTES || view.getInt(view.position()) == 0;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read journal segment " + file, ex);
+        }
+    }
+
+    /**
+     * Kolejny poprawny rekord (przesuwa pozycję bufora za niego) albo null na końcu danych.
+     */
+    private static ByteBuffer nextRecord(ByteBuffer view) {
+        if (view.remaining() < HEADER_BYTES) return null;
+
+        int start = view.position();
+        int length = view.getInt(start);
+        if (length <= 0 || length > view.remaining() - HEADER_BYTES) return null;
+
+        ByteBuffer record = view.slice(start + HEADER_BYTES, length);
+        CRC32C crc = new CRC32C();
+        crc.update(record.duplicate());
+        if ((int) crc.getValue() != view.getInt(start + 4)) return null;
+
+        view.position(start + HEADER_BYTES + length);
+        return record.asReadOnlyBuffer();
+    }
+
+    /**
+     * Znacznik końca kompaktowania z liczbą nowych segmentów. Zapisany obok, zrzucony na dysk i dopiero wtedy
+     * przemianowany (atomowo) – istniejący znacznik ma zawsze pełną treść.
+     */
+    private static void markCompactionComplete(Path tmp, int segmentCount) throws IOException {
+        Path pending = tmp.resolve(COMPACT_DONE_TMP);
+        try (FileChannel channel = FileChannel.open(pending,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(Integer.toString(segmentCount).getBytes(StandardCharsets.US_ASCII)));
+            channel.force(true);
+        }
+        Files.move(pending, tmp.resolve(COMPACT_DONE), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Dokończenie przerwanego kompaktowania: kompletny katalog tymczasowy zastępuje stare segmenty,
+     * niekompletny jest usuwany.
+     * <p>
+     * Idempotentne – awaria w dowolnym miejscu i ponowne wywołanie dają ten sam wynik. Nowe segmenty mają numery
+     * 1..n (n ze znacznika) i każdy atomowo zastępuje stary o tej samej nazwie; te już przeniesione nie są
+     * w katalogu tymczasowym, więc nie ruszamy ich drugi raz. Usuwamy tylko stare segmenty o numerach &gt; n,
+     * a katalog tymczasowy (ze znacznikiem) na samym końcu.
+     */
+    private void recoverCompaction() throws IOException {
+        Path tmp = directory.resolve(COMPACT_DIR);
+        if (!Files.isDirectory(tmp)) return;
+
+        Path done = tmp.resolve(COMPACT_DONE);
+        if (Files.exists(done)) {
+            long compactedCount = Long.parseLong(Files.readString(done, StandardCharsets.US_ASCII).trim());
+            for (Path file : segmentFiles(tmp)) {
+                Files.move(file, directory.resolve(file.getFileName()),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            for (Path old : segmentFiles(directory)) {
+                if (indexOf(old) > compactedCount) {
+                    Files.delete(old);
+                }
+            }
+        }
+        deleteRecursively(tmp);
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, index, SUFFIX));
+    }
+
+    private static long indexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static List<Path> segmentFiles(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot list journal segments in " + dir, ex);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+}
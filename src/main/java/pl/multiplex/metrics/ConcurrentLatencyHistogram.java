@@ -0,0 +1,79 @@
+package pl.multiplex.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram czasów (ns) zapisywany z wielu wątków bez blokad.
+ * <p>
+ * Kubełki log-liniowe ({@link LogLinearBuckets}): 32 na każdą potęgę dwójki, czyli błąd odczytu percentyla &lt; ~3% w całym zakresie long.
+ * Liczniki są rozłożone na pasy jak w {@link StripedCounter}, żeby wątki na różnych rdzeniach
+ * nie biły w tę samą linię cache przy typowych, powtarzających się czasach. Odczyt scala pasy.
+ * Suma (do średniej) leży w ostatniej komórce pasa; maksimum zapisujemy tylko, gdy rośnie.
+ */
+final class ConcurrentLatencyHistogram {
+
+    private static final LogLinearBuckets BUCKETS = new LogLinearBuckets(5);
+    private static final int LENGTH = BUCKETS.length();
+    private static final int SUM = LENGTH;
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[StripedCounter.STRIPES];
+    private final AtomicLong max = new AtomicLong();
+
+    ConcurrentLatencyHistogram() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new AtomicLongArray(LENGTH + 1);
+        }
+    }
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        AtomicLongArray stripe = stripes[StripedCounter.stripe()];
+        stripe.getAndIncrement(BUCKETS.indexOf(value));
+        stripe.getAndAdd(SUM, value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Scalony obraz liczników (nie jest atomowy względem trwających zapisów – to tylko statystyka).
+     */
+    long[] counts() {
+        long[] out = new long[LENGTH];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < LENGTH; i++) {
+                out[i] += stripe.get(i);
+            }
+        }
+        return out;
+    }
+
+    long sum() {
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) {
+            sum += stripe.get(SUM);
+        }
+        return sum;
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    void reset() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i <= LENGTH; i++) {
+                stripe.set(i, 0);
+            }
+        }
+        max.set(0);
+    }
+
+    /**
+     * Wartość na danym percentylu z obrazu counts() (górna granica kubełka, nie więcej niż max).
+     */
+    static long valueAtPercentile(long[] counts, long total, long max, double percentile) {
+        return BUCKETS.valueAtPercentile(counts, total, max, percentile);
+    }
+}
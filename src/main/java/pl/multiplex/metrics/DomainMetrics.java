@@ -0,0 +1,213 @@
+package pl.multiplex.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Globalny rejestr metryk gorących ścieżek domeny (Screening, Cinema, MultiplexNetwork, TicketFactory).
+ * <p>
+ * Operacje są stałymi – klasy domeny wołają je bezpośrednio, bez wyszukiwania po nazwie. Zmiany stanu liczymy
+ * dokładnie, a czas mierzymy co 128. wywołanie (planowanie i zakup hurtowy – przy każdym, bo trwają mikrosekundy).
+ * Zapytania i tworzenie biletu mierzymy co 64. wywołanie, a ich liczba wywołań jest przybliżona (patrz OperationMetrics).
+ * <p>
+ * Wyszukiwania krótsze niż ~100 ns (findCinema, findScreening, findReservation/findOrder/findTicket,
+ * repertuar z pamięci podręcznej) są domyślnie wyłączone –
+ * nawet licznik bez instrukcji atomowej to dla nich kilkanaście procent czasu. Włącza je
+ * {@code -Dmultiplex.metrics.fastLookups=true} albo {@link #setFastLookupsEnabled(boolean)}.
+ * <p>
+ * Instrumentację wyłącza {@code -Dmultiplex.metrics=false} albo {@link #setEnabled(boolean)} (także przez JMX).
+ * {@link #registerMBeans()} wystawia każdą operację jako MXBean {@code pl.multiplex:type=Operation,name=...}.
+ */
+public final class DomainMetrics {
+
+    private static final int HOT = 128;
+    private static final int QUERY = 64;
+    private static final String DOMAIN = "pl.multiplex";
+
+    private static final List<OperationMetrics> ALL = new ArrayList<>();
+    private static final List<OperationMetrics> FAST_LOOKUPS = new ArrayList<>();
+
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("multiplex.metrics", "true"));
+    private static volatile boolean fastLookups = Boolean.getBoolean("multiplex.metrics.fastLookups");
+
+    // Screening
+    public static final OperationMetrics SCREENING_RESERVE = exact("screening.reserveSeats", HOT);
+    public static final OperationMetrics SCREENING_CANCEL = exact("screening.cancelReservation", HOT);
+    public static final OperationMetrics SCREENING_BUY = exact("screening.buyTickets", HOT);
+    public static final OperationMetrics SCREENING_BUY_BATCH = exact("screening.buyTicketsBatch", 1);
+    public static final OperationMetrics SCREENING_FREE_SEATS = sampled("screening.getFreeSeats", QUERY);
+
+    // Cinema
+    public static final OperationMetrics CINEMA_SCHEDULE = exact("cinema.schedule", 1);
+    public static final OperationMetrics CINEMA_UNSCHEDULE = exact("cinema.unschedule", 1);
+    public static final OperationMetrics CINEMA_PROGRAMME = fastLookup("cinema.programme", QUERY);
+    public static final OperationMetrics CINEMA_FIND_MOVIE = sampled("cinema.findMovie", QUERY);
+
+    // MultiplexNetwork
+    public static final OperationMetrics NETWORK_FIND_CINEMA = fastLookup("network.findCinema", QUERY);
+    public static final OperationMetrics NETWORK_FIND_SCREENING = fastLookup("network.findScreening", QUERY);
+    public static final OperationMetrics NETWORK_FIND_RESERVATION = fastLookup("network.findReservation", QUERY);
+    public static final OperationMetrics NETWORK_FIND_ORDER = fastLookup("network.findOrder", QUERY);
+    public static final OperationMetrics NETWORK_FIND_TICKET = fastLookup("network.findTicket", QUERY);
+    public static final OperationMetrics NETWORK_FIND_MOVIE = sampled("network.findMovie", QUERY);
+
+    // TicketFactory
+    public static final OperationMetrics TICKET_CREATE = sampled("ticketFactory.createTicket", QUERY);
+    public static final OperationMetrics TICKET_CREATE_BATCH = exact("ticketFactory.createTickets", HOT);
+
+    private DomainMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Włącza albo wyłącza wszystkie operacje naraz (pojedynczą – OperationMetrics.setEnabled).
+     * Szybkie wyszukiwania włącza tylko razem z {@link #setFastLookupsEnabled(boolean)}.
+     */
+    public static synchronized void setEnabled(boolean value) {
+        enabled = value;
+        for (OperationMetrics m : ALL) {
+            m.setEnabled(value && (fastLookups || !FAST_LOOKUPS.contains(m)));
+        }
+    }
+
+    public static boolean isFastLookupsEnabled() {
+        return fastLookups;
+    }
+
+    /**
+     * Pomiar wyszukiwań krótszych niż ~100 ns – działa, gdy instrumentacja jest włączona.
+     */
+    public static synchronized void setFastLookupsEnabled(boolean value) {
+        fastLookups = value;
+        for (OperationMetrics m : FAST_LOOKUPS) {
+            m.setEnabled(value && enabled);
+        }
+    }
+
+    public static List<OperationMetrics> operations() {
+        return List.copyOf(ALL);
+    }
+
+    /**
+     * Obraz wszystkich operacji (w kolejności rejestracji).
+     */
+    public static List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> out = new ArrayList<>(ALL.size());
+        for (OperationMetrics m : ALL) {
+            out.add(m.snapshot());
+        }
+        return out;
+    }
+
+    public static void reset() {
+        for (OperationMetrics m : ALL) {
+            m.reset();
+        }
+    }
+
+    /**
+     * Rejestruje MXBeany w platformowym MBeanServerze (jconsole, VisualVM, eksporter JMX → Prometheus).
+     * Ponowne wywołanie nic nie zmienia.
+     */
+    public static void registerMBeans() {
+        registerMBeans(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public static synchronized void registerMBeans(MBeanServer server) {
+        Objects.requireNonNull(server, "server cannot be null");
+        try {
+            ObjectName root = new ObjectName(DOMAIN + ":type=DomainMetrics");
+            if (!server.isRegistered(root)) {
+                server.registerMBean(new StandardMBean(new Control(), DomainMetricsMXBean.class, true), root);
+            }
+            for (OperationMetrics m : ALL) {
+                ObjectName name = operationName(m);
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(m, name);
+                }
+            }
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot register metrics MBeans", ex);
+        }
+    }
+
+    public static synchronized void unregisterMBeans(MBeanServer server) {
+        Objects.requireNonNull(server, "server cannot be null");
+        try {
+            ObjectName root = new ObjectName(DOMAIN + ":type=DomainMetrics");
+            if (server.isRegistered(root)) server.unregisterMBean(root);
+            for (OperationMetrics m : ALL) {
+                ObjectName name = operationName(m);
+                if (server.isRegistered(name)) server.unregisterMBean(name);
+            }
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot unregister metrics MBeans", ex);
+        }
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    private static OperationMetrics exact(String name, int sampleEvery) {
+        return register(new OperationMetrics(name, sampleEvery, true, enabled));
+    }
+
+    private static OperationMetrics sampled(String name, int sampleEvery) {
+        return register(new OperationMetrics(name, sampleEvery, false, enabled));
+    }
+
+    private static OperationMetrics fastLookup(String name, int sampleEvery) {
+        OperationMetrics metrics = register(new OperationMetrics(name, sampleEvery, false, enabled && fastLookups));
+        FAST_LOOKUPS.add(metrics);
+        return metrics;
+    }
+
+    private static OperationMetrics register(OperationMetrics metrics) {
+        ALL.add(metrics);
+        return metrics;
+    }
+
+    private static ObjectName operationName(OperationMetrics m) throws MalformedObjectNameException {
+        return new ObjectName(DOMAIN + ":type=Operation,name=" + m.getName());
+    }
+
+    private static final class Control implements DomainMetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return DomainMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean value) {
+            DomainMetrics.setEnabled(value);
+        }
+
+        @Override
+        public boolean isFastLookupsEnabled() {
+            return DomainMetrics.isFastLookupsEnabled();
+        }
+
+        @Override
+        public void setFastLookupsEnabled(boolean value) {
+            DomainMetrics.setFastLookupsEnabled(value);
+        }
+
+        @Override
+        public String[] getOperationNames() {
+            return ALL.stream().map(OperationMetrics::getName).toArray(String[]::new);
+        }
+
+        @Override
+        public void reset() {
+            DomainMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package pl.multiplex.metrics;
+
+/**
+ * Widok JMX całej instrumentacji (pl.multiplex:type=DomainMetrics): włącznik, szybkie wyszukiwania i zerowanie.
+ */
+public interface DomainMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    boolean isFastLookupsEnabled();
+
+    void setFastLookupsEnabled(boolean enabled);
+
+    String[] getOperationNames();
+
+    void reset();
+}
@@ -0,0 +1,78 @@
+package pl.multiplex.metrics;
+
+/**
+ * Układ kubełków log-liniowych (w stylu HdrHistogram) wspólny dla histogramów czasów:
+ * {@link ConcurrentLatencyHistogram} i {@code pl.multiplex.bench.LatencyHistogram}.
+ * <p>
+ * Wartości mniejsze niż 2^subBucketBits mają własne kubełki (dokładnie); wyżej każdą potęgę dwójki dzielimy
+ * na 2^subBucketBits równych kubełków – błąd względny odczytu to najwyżej 2^-subBucketBits w całym zakresie long.
+ */
+public final class LogLinearBuckets {
+
+    private final int subBucketBits;
+    private final int subBuckets;
+    private final int length;
+
+    public LogLinearBuckets(int subBucketBits) {
+        if (subBucketBits < 1 || subBucketBits > 16) {
+            throw new IllegalArgumentException("subBucketBits must be in [1, 16]");
+        }
+        this.subBucketBits = subBucketBits;
+        this.subBuckets = 1 << subBucketBits;
+        this.length = (64 - subBucketBits) * subBuckets;
+    }
+
+    /**
+     * Liczba kubełków – długość tablicy liczników.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Kubełek wartości (&gt;= 0); kubełek o wykładniku e ma szerokość 2^(e - subBucketBits).
+     */
+    public int indexOf(long value) {
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent < subBucketBits) {
+            return (int) value;
+        }
+        int shift = exponent - subBucketBits;
+        int sub = (int) (value >>> shift) - subBuckets;
+        return (shift + 1) * subBuckets + sub;
+    }
+
+    /**
+     * Największa wartość, która trafia do kubełka.
+     */
+    public long highestValueIn(int index) {
+        int bucket = index / subBuckets;
+        long sub = index % subBuckets;
+        if (bucket == 0) {
+            return sub;
+        }
+        int shift = bucket - 1;
+        long lowest = (sub + subBuckets) << shift;
+        long highest = lowest + ((1L << shift) - 1);
+        return highest < lowest ? Long.MAX_VALUE : highest;
+    }
+
+    /**
+     * Wartość, poniżej lub na której leży percentile % pomiarów (górna granica kubełka, nie więcej niż max).
+     */
+    public long valueAtPercentile(long[] counts, long total, long max, double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile must be in [0, 100]");
+        }
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueIn(i), max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,227 @@
+package pl.multiplex.metrics;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liczniki i histogram czasów jednej operacji domenowej – bez blokad na gorącej ścieżce.
+ * <p>
+ * Użycie w metodzie:
+ * <pre>{@code
+ * long started = METRICS.start();
+ * try {
+ *     ...
+ *     METRICS.success(started);
+ * } catch (RuntimeException ex) {
+ *     METRICS.failure(started, ex);
+ *     throw ex;
+ * }
+ * }</pre>
+ * Czas mierzymy tylko co sampleEvery-te wywołanie – odczyt zegara (dziesiątki ns na maszynie wirtualnej)
+ * kosztowałby więcej niż szybka operacja. Wywołania liczy licznik pasowy, a jego wartość wybiera wywołania
+ * do pomiaru. Zmiany stanu (exact) liczymy atomowo; zapytania trwające kilkadziesiąt ns liczymy bez instrukcji
+ * atomowej (StripedCounter.incrementRelaxed) – przy rywalizacji na jednym pasie część zwiększeń przepada,
+ * więc liczba wywołań jest przybliżona, za to koszt to zwykły load i store. Przyczyny porażek liczymy dokładnie.
+ * Gdy operacja jest wyłączona ({@link #setEnabled}, {@link DomainMetrics#setEnabled}), koszt to jeden odczyt
+ * pola volatile – tak można np. zdjąć pomiar z najszybszych zapytań, zostawiając resztę.
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+    static final long DISABLED = Long.MIN_VALUE;
+    static final long NOT_SAMPLED = Long.MIN_VALUE + 1;
+
+    private final String name;
+    private final int sampleEvery;
+    private final int sampleMask;
+    private final boolean exact;
+    private volatile boolean enabled;
+
+    private final StripedCounter count = new StripedCounter();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final ConcurrentLatencyHistogram latencies = new ConcurrentLatencyHistogram();
+
+    /**
+     * @param sampleEvery co które wywołanie mierzyć czasowo (potęga dwójki; 1 = każde)
+     * @param exact       true – licznik atomowy; false – licznik bez instrukcji atomowej (przybliżony)
+     */
+    OperationMetrics(String name, int sampleEvery, boolean exact, boolean enabled) {
+        this.name = Objects.requireNonNull(name, "name cannot be null");
+        if (sampleEvery <= 0 || Integer.bitCount(sampleEvery) != 1) {
+            throw new IllegalArgumentException("sampleEvery must be a power of two");
+        }
+        this.sampleEvery = sampleEvery;
+        this.sampleMask = sampleEvery - 1;
+        this.exact = exact;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Początek wywołania – wynik przekazujemy do success/failure.
+     */
+    public long start() {
+        if (!enabled) return DISABLED;
+        long n = exact ? count.increment() : count.incrementRelaxed();
+        return (n & sampleMask) == 0 ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    public void success(long started) {
+        if (started > NOT_SAMPLED) {
+            latencies.record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Wywołanie zakończone wyjątkiem – klasyfikujemy go do licznika (konflikt, odrzucenie, brak, błąd).
+     */
+    public void failure(long started, RuntimeException ex) {
+        if (started == DISABLED) return;
+        classify(ex);
+        success(started);
+    }
+
+    /**
+     * Odrzucona pozycja operacji zbiorczej (np. przegrane żądanie w zakupie hurtowym) – samo wywołanie
+     * liczy success/failure, tu tylko klasyfikujemy przyczynę.
+     */
+    public void rejected(RuntimeException ex) {
+        if (enabled) classify(ex);
+    }
+
+    public OperationSnapshot snapshot() {
+        long[] counts = latencies.counts();
+        long sampled = 0;
+        for (long c : counts) sampled += c;
+        long max = latencies.max();
+        return new OperationSnapshot(name, count.sum(), conflicts.sum(), rejections.sum(), notFound.sum(), errors.sum(),
+                sampled, sampled == 0 ? 0 : (double) latencies.sum() / sampled,
+                ConcurrentLatencyHistogram.valueAtPercentile(counts, sampled, max, 50),
+                ConcurrentLatencyHistogram.valueAtPercentile(counts, sampled, max, 90),
+                ConcurrentLatencyHistogram.valueAtPercentile(counts, sampled, max, 99),
+                ConcurrentLatencyHistogram.valueAtPercentile(counts, sampled, max, 99.9),
+                max);
+    }
+
+    // -------------------
+    // OperationMetricsMXBean
+    // -------------------
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public long getNotFound() {
+        return notFound.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getSampledCount() {
+        return snapshot().sampled();
+    }
+
+    @Override
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    @Override
+    public boolean isExactCount() {
+        return exact;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return snapshot().meanNanos() / 1000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return snapshot().p50Nanos() / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return snapshot().p90Nanos() / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return snapshot().p99Nanos() / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return snapshot().p999Nanos() / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.max() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        conflicts.reset();
+        rejections.reset();
+        notFound.reset();
+        errors.reset();
+        latencies.reset();
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    private void classify(RuntimeException ex) {
+        if (ex instanceof IllegalStateException) {
+            conflicts.increment();
+        } else if (ex instanceof NoSuchElementException) {
+            notFound.increment();
+        } else if (ex instanceof IllegalArgumentException) {
+            rejections.increment();
+        } else {
+            errors.increment();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OperationMetrics{" + name + ", count=" + count.sum() + '}';
+    }
+}
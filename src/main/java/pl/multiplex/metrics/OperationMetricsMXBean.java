@@ -0,0 +1,43 @@
+package pl.multiplex.metrics;
+
+/**
+ * Widok JMX jednej operacji (pl.multiplex:type=Operation,name=...). Czasy w mikrosekundach.
+ */
+public interface OperationMetricsMXBean {
+
+    String getName();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getCount();
+
+    long getConflicts();
+
+    long getRejections();
+
+    long getNotFound();
+
+    long getErrors();
+
+    long getSampledCount();
+
+    int getSampleEvery();
+
+    boolean isExactCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
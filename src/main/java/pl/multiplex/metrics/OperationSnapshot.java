@@ -0,0 +1,30 @@
+package pl.multiplex.metrics;
+
+import java.util.Objects;
+
+/**
+ * Obraz statystyk jednej operacji w danej chwili.
+ * <p>
+ * count – wszystkie wywołania; conflicts – odrzucone przez stan (IllegalStateException, np. "Seat is not free");
+ * rejections – odrzucone dane wejściowe (IllegalArgumentException, np. kolizja w sali); notFound – brak obiektu
+ * (NoSuchElementException); errors – pozostałe wyjątki. Czasy (ns) liczone z sampled pomiarów.
+ */
+public record OperationSnapshot(String name, long count, long conflicts, long rejections, long notFound, long errors,
+                                long sampled, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+                                long p999Nanos, long maxNanos) {
+
+    public OperationSnapshot {
+        Objects.requireNonNull(name, "name cannot be null");
+    }
+
+    public String format() {
+        return String.format("%-32s %,12d %,10d %,10d %,10d %10.1f %10.1f %10.1f %10.1f %10.1f",
+                name, count, conflicts, rejections + notFound + errors, sampled,
+                meanNanos / 1000, p50Nanos / 1000.0, p99Nanos / 1000.0, p999Nanos / 1000.0, maxNanos / 1000.0);
+    }
+
+    public static String header() {
+        return String.format("%-32s %12s %10s %10s %10s %10s %10s %10s %10s %10s",
+                "Operation", "Count", "Conflicts", "Failed", "Sampled", "Mean µs", "p50 µs", "p99 µs", "p99.9 µs", "Max µs");
+    }
+}
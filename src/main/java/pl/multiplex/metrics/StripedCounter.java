@@ -0,0 +1,61 @@
+package pl.multiplex.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Licznik rozłożony na pasy (wątek → pas po id), każdy pas w osobnej linii cache.
+ * Jak LongAdder, ale {@link #increment()} zwraca poprzednią wartość pasa – służy też do wyboru co N-tego wywołania.
+ */
+final class StripedCounter {
+
+    private static final int PAD = 16; // 16 * 8 B = 128 B między pasami (dwie linie cache – prefetch sąsiedniej)
+    private static final int MAX_STRIPES = 16;
+
+    static final int STRIPES = stripeCount();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+    long increment() {
+        return cells.getAndIncrement(stripe() * PAD);
+    }
+
+    /**
+     * Inkrementacja bez instrukcji atomowej (odczyt i zapis opaque): dwa wątki na jednym pasie mogą zgubić
+     * wzajemnie swoje zwiększenia, więc suma jest przybliżona – za to koszt to zwykły load i store.
+     */
+    long incrementRelaxed() {
+        int i = stripe() * PAD;
+        long previous = cells.getOpaque(i);
+        cells.setOpaque(i, previous + 1);
+        return previous;
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PAD, 0);
+        }
+    }
+
+    /**
+     * Pas bieżącego wątku. Dwa wątki na jednym pasie to tylko rywalizacja o linię cache, nie błąd.
+     */
+    static int stripe() {
+        return (int) Thread.currentThread().threadId() & (STRIPES - 1);
+    }
+
+    /**
+     * Najmniejsza potęga dwójki >= liczba procesorów (co najmniej 2, najwyżej 16).
+     */
+    private static int stripeCount() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return Math.min(MAX_STRIPES, Math.max(2, Integer.highestOneBit(Math.max(1, cpus - 1)) << 1));
+    }
+}
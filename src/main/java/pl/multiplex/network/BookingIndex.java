@@ -0,0 +1,143 @@
+package pl.multiplex.network;
+
+import pl.multiplex.sales.Reservation;
+import pl.multiplex.sales.Ticket;
+import pl.multiplex.sales.TicketOrder;
+import pl.multiplex.screening.Screening;
+import pl.multiplex.screening.ScreeningListener;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indeks rezerwacji, zamówień i biletów po identyfikatorze – dla całej sieci (infolinia, bramki).
+ * <p>
+ * Utrzymywany przez MultiplexNetwork jako ScreeningListener: rezerwacja wpada przy onReserved i wypada przy
+ * anulowaniu albo wygaśnięciu, zamówienie i jego bilety – przy sprzedaży. Seans dodany do sieci wnosi rezerwacje
+ * i zamówienia, które już ma (Screening.getOrders), a zdjęty z repertuaru (albo usunięte kino) – zabiera je.
+ * <p>
+ * Pamięć: aktywne rezerwacje plus zamówienia i bilety seansów w sieci – biletów najwyżej tyle, ile miejsc mają
+ * ich sale. Seanse zostają w repertuarze także po projekcji, więc bez sprzątania to rośnie z każdym dniem;
+ * evictEnded zdejmuje wpisy seansów zakończonych przed podaną chwilą (sprzedaż, która na nie jeszcze przyjdzie,
+ * nie trafi już do indeksu).
+ * <p>
+ * Dodanie, zdjęcie i sprzątanie seansu idą pod blokadą indeksu; sprzedaż jej nie bierze – po wpisie sprawdza tylko,
+ * czy seans nadal jest w indeksie, i dopiero gdy nie, rozstrzyga pod blokadą.
+ */
+final class BookingIndex implements ScreeningListener {
+
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final Map<String, TicketOrder> orders = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Set<Screening> screenings = ConcurrentHashMap.newKeySet();
+
+    Reservation reservation(String reservationId) {
+        return reservations.get(reservationId);
+    }
+
+    TicketOrder order(String orderId) {
+        return orders.get(orderId);
+    }
+
+    Ticket ticket(String ticketId) {
+        return tickets.get(ticketId);
+    }
+
+    /**
+     * Seans w sieci – od teraz indeksujemy jego sprzedaż; rezerwacje i zamówienia, które już miał, dopisujemy od razu.
+     */
+    synchronized void screeningAdded(Screening screening) {
+        screenings.add(screening);
+        for (Reservation reservation : screening.getReservations()) {
+            reservations.put(reservation.getReservationId(), reservation);
+        }
+        for (TicketOrder order : screening.getOrders()) {
+            addOrder(order);
+        }
+    }
+
+    synchronized void screeningRemoved(Screening screening) {
+        screenings.remove(screening);
+        removeAll(screening);
+    }
+
+    /**
+     * Zdejmuje wpisy seansów zakończonych przed {@code endedBefore}; zwraca, ilu seansów to dotyczyło.
+     */
+    synchronized int evictEnded(LocalDateTime endedBefore) {
+        int evicted = 0;
+        for (Iterator<Screening> it = screenings.iterator(); it.hasNext(); ) {
+            Screening screening = it.next();
+            if (screening.getEnd().isBefore(endedBefore)) {
+                it.remove();
+                removeAll(screening);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    // -------------------
+    // ScreeningListener
+    // -------------------
+
+    @Override
+    public void onReserved(Screening screening, Reservation reservation) {
+        reservations.put(reservation.getReservationId(), reservation);
+    }
+
+    @Override
+    public void onReservationCancelled(Screening screening, Reservation reservation) {
+        reservations.remove(reservation.getReservationId(), reservation);
+    }
+
+    @Override
+    public void onReservationConsumed(Screening screening, Reservation reservation, TicketOrder order) {
+        reservations.remove(reservation.getReservationId(), reservation);
+    }
+
+    @Override
+    public void onTicketsSold(Screening screening, TicketOrder order) {
+        if (!screenings.contains(screening)) return; // seans spoza sieci albo już zdjęty
+
+        addOrder(order);
+        if (!screenings.contains(screening)) {
+            // seans zdjęty w trakcie wpisu – jego sprzątanie mogło nas ominąć
+            synchronized (this) {
+                if (!screenings.contains(screening)) {
+                    removeOrder(order);
+                }
+            }
+        }
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    private void removeAll(Screening screening) {
+        for (TicketOrder order : screening.getOrders()) {
+            removeOrder(order);
+        }
+        for (Reservation reservation : screening.getReservations()) {
+            reservations.remove(reservation.getReservationId(), reservation);
+        }
+    }
+
+    private void addOrder(TicketOrder order) {
+        orders.put(order.getOrderId(), order);
+        for (Ticket ticket : order.getTickets()) {
+            tickets.put(ticket.getTicketId(), ticket);
+        }
+    }
+
+    private void removeOrder(TicketOrder order) {
+        orders.remove(order.getOrderId(), order);
+        for (Ticket ticket : order.getTickets()) {
+            tickets.remove(ticket.getTicketId(), ticket);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package pl.multiplex.network;
 
+import pl.multiplex.metrics.DomainMetrics;
+import pl.multiplex.metrics.OperationMetrics;
 import pl.multiplex.screening.Movie;
 import pl.multiplex.screening.Screening;
+import pl.multiplex.screening.ScreeningListener;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -18,7 +22,12 @@ public class Cinema {
     private final String address;
 
     private final List<Hall> halls = new ArrayList<>();
-    private final List<Screening> screenings = new ArrayList<>();
+    private final Set<Screening> screenings = new LinkedHashSet<>();
+    private final Map<String, HallTimetable> timetablesByHall = new HashMap<>();
+    private final ProgrammeIndex programme = new ProgrammeIndex();
+    private final MovieSearchIndex movieIndex = new MovieSearchIndex();
+    private MultiplexNetwork network;
+    private final List<ScreeningListener> screeningListeners = new ArrayList<>();
 
     public Cinema(String name, String address) {
         this.name = normalize(name, "name");
@@ -39,11 +48,14 @@ public class Cinema {
 
     public void addHall(Hall hall) {
         Objects.requireNonNull(hall, "hall cannot be null");
-        boolean exists = halls.stream().anyMatch(h -> h.getName().equalsIgnoreCase(hall.getName()));
-        if (exists) {
+        if (timetablesByHall.containsKey(hallKey(hall.getName()))) {
             throw new IllegalArgumentException("Hall with name '" + hall.getName() + "' already exists in cinema '" + name + "'");
         }
         halls.add(hall);
+        timetablesByHall.put(hallKey(hall.getName()), new HallTimetable());
+        if (network != null) {
+            network.hallAdded(this, hall);
+        }
     }
 
     public List<Hall> getHalls() {
@@ -63,41 +75,155 @@ public class Cinema {
     // -------------------
 
     public void schedule(Screening screening) {
+        OperationMetrics metrics = DomainMetrics.CINEMA_SCHEDULE;
+        long started = metrics.start();
+        try {
+            add(screening);
+            metrics.success(started);
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
+
+    private void add(Screening screening) {
         Objects.requireNonNull(screening, "screening cannot be null");
 
-        boolean hallBelongs = halls.stream().anyMatch(h -> h.getName().equalsIgnoreCase(screening.getHall().getName()));
-        if (!hallBelongs) {
+        HallTimetable timetable = timetablesByHall.get(hallKey(screening.getHall().getName()));
+        if (timetable == null) {
             throw new IllegalArgumentException("Cannot schedule screening in hall not registered in cinema '" + name + "'");
         }
 
-        for (Screening existing : screenings) {
-            boolean sameHall = existing.getHall().getName().equalsIgnoreCase(screening.getHall().getName());
-            if (!sameHall) continue;
-
-            if (overlaps(existing.getStart(), existing.getEnd(), screening.getStart(), screening.getEnd())) {
-                throw new IllegalArgumentException(
-                        "Screening time conflict in hall '" + screening.getHall().getName() + "' for cinema '" + name + "': "
-                                + existing.getStart() + " - " + existing.getEnd()
-                                + " overlaps with "
-                                + screening.getStart() + " - " + screening.getEnd()
-                );
-            }
+        Screening existing = timetable.findConflict(screening.getStart(), screening.getEnd());
+        if (existing != null) {
+            throw new IllegalArgumentException(
+                    "Screening time conflict in hall '" + screening.getHall().getName() + "' for cinema '" + name + "': "
+                            + existing.getStart() + " - " + existing.getEnd()
+                            + " overlaps with "
+                            + screening.getStart() + " - " + screening.getEnd()
+            );
         }
 
+        timetable.add(screening);
         screenings.add(screening);
+        programme.add(screening);
+        movieIndex.add(screening.getMovie());
+        if (network != null) {
+            network.screeningScheduled(this, screening);
+        }
+        for (ScreeningListener listener : screeningListeners) {
+            screening.addListener(listener);
+        }
+    }
+
+    /**
+     * Usuwa seans z repertuaru (np. odwołany). Zwraca false, gdy seans nie był zaplanowany w tym kinie.
+     */
+    public boolean unschedule(Screening screening) {
+        OperationMetrics metrics = DomainMetrics.CINEMA_UNSCHEDULE;
+        long started = metrics.start();
+        try {
+            boolean removed = remove(screening);
+            metrics.success(started);
+            return removed;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
     }
 
+    private boolean remove(Screening screening) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+
+        HallTimetable timetable = timetablesByHall.get(hallKey(screening.getHall().getName()));
+        if (timetable == null || !timetable.remove(screening)) {
+            return false;
+        }
+
+        screenings.remove(screening);
+        programme.remove(screening);
+        movieIndex.remove(screening.getMovie());
+        if (network != null) {
+            network.screeningUnscheduled(this, screening);
+        }
+        for (ScreeningListener listener : screeningListeners) {
+            screening.removeListener(listener);
+        }
+        return true;
+    }
+
+    /**
+     * Najwcześniejszy moment >= after, od którego sala jest wolna przez podany czas
+     * (czas zajęcia sali, czyli film + przerwa techniczna).
+     */
+    public LocalDateTime findNextFreeSlot(Hall hall, LocalDateTime after, Duration length) {
+        Objects.requireNonNull(hall, "hall cannot be null");
+        Objects.requireNonNull(after, "after cannot be null");
+        Objects.requireNonNull(length, "length cannot be null");
+        if (length.isNegative() || length.isZero()) {
+            throw new IllegalArgumentException("length must be > 0");
+        }
+
+        HallTimetable timetable = timetablesByHall.get(hallKey(hall.getName()));
+        if (timetable == null) {
+            throw new NoSuchElementException("Hall not found in cinema '" + name + "': " + hall.getName());
+        }
+        return timetable.findNextFreeSlot(after, length);
+    }
+
+    /**
+     * Podpina obserwatora pod wszystkie seanse kina – obecne i zaplanowane później.
+     */
+    public void addScreeningListener(ScreeningListener listener) {
+        Objects.requireNonNull(listener, "listener cannot be null");
+        screeningListeners.add(listener);
+        for (Screening s : screenings) {
+            s.addListener(listener);
+        }
+    }
+
+    public void removeScreeningListener(ScreeningListener listener) {
+        if (screeningListeners.remove(listener)) {
+            for (Screening s : screenings) {
+                s.removeListener(listener);
+            }
+        }
+    }
+
+    /**
+     * Wszystkie seanse w kolejności planowania (kopia).
+     */
     public List<Screening> getScreenings() {
-        return Collections.unmodifiableList(screenings);
+        return List.copyOf(screenings);
     }
 
     public List<Screening> getProgrammeNextWeek(LocalDate today) {
         Objects.requireNonNull(today, "today cannot be null");
-        LocalDate from = today;
-        LocalDate to = today.plusDays(7);
-        return getProgramme(from, to);
+        OperationMetrics metrics = DomainMetrics.CINEMA_PROGRAMME;
+        long started = metrics.start();
+        try {
+            List<Screening> out = programme.week(today);
+            metrics.success(started);
+            return out;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
     }
 
+    public List<Screening> getProgrammeForDay(LocalDate day) {
+        Objects.requireNonNull(day, "day cannot be null");
+        OperationMetrics metrics = DomainMetrics.CINEMA_PROGRAMME;
+        long started = metrics.start();
+        try {
+            List<Screening> out = programme.day(day);
+            metrics.success(started);
+            return out;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
 
 
     public void printProgramme(LocalDate from, LocalDate to) {
@@ -113,40 +239,47 @@ public class Cinema {
         }
     }
 
+    /**
+     * Wyszukuje filmy z repertuaru po fragmencie tytułu, reżysera albo tematu (przez MovieSearchIndex).
+     */
     public List<Movie> findMovie(String query) {
-        String q = normalize(query, "query").toLowerCase();
-
-        Map<String, Movie> unique = new LinkedHashMap<>();
-        for (Screening s : screenings) {
-            Movie m = s.getMovie();
-            String key = (m.getTitle() + "|" + m.getDirector()).toLowerCase();
-            if (m.getTitle().toLowerCase().contains(q) || m.getDirector().toLowerCase().contains(q)) {
-                unique.putIfAbsent(key, m);
-            }
+        String q = normalize(query, "query");
+        OperationMetrics metrics = DomainMetrics.CINEMA_FIND_MOVIE;
+        long started = metrics.start();
+        try {
+            List<Movie> out = movieIndex.search(q);
+            metrics.success(started);
+            return out;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
         }
-        return List.copyOf(unique.values());
     }
 
     // -------------------
     // helpers
     // -------------------
+
+    /**
+     * Wołane przez MultiplexNetwork: od teraz kino zgłasza sieci nowe sale i zmiany w repertuarze.
+     */
+    void attachTo(MultiplexNetwork network) {
+        this.network = network;
+    }
+
+    void detach() {
+        this.network = null;
+    }
+
     private List<Screening> getProgramme(LocalDate from, LocalDate to) {
         Objects.requireNonNull(from, "from cannot be null");
         Objects.requireNonNull(to, "to cannot be null");
 
-        LocalDateTime startInclusive = from.atStartOfDay();
-        LocalDateTime endExclusive = to.plusDays(1).atStartOfDay();
-
-        return screenings.stream()
-                .filter(s -> !s.getStart().isBefore(startInclusive) && s.getStart().isBefore(endExclusive))
-                .sorted(Comparator.comparing(Screening::getStart)
-                        .thenComparing(s -> s.getHall().getName(), String.CASE_INSENSITIVE_ORDER))
-                .toList();
+        return programme.range(from, to);
     }
 
-    private static boolean overlaps(LocalDateTime aStart, LocalDateTime aEnd,
-                                    LocalDateTime bStart, LocalDateTime bEnd) {
-        return aStart.isBefore(bEnd) && bStart.isBefore(aEnd);
+    private static String hallKey(String hallName) {
+        return hallName.toLowerCase(Locale.ROOT);
     }
 
     private static String normalize(String s, String field) {
@@ -6,55 +6,90 @@ import java.util.*;
 
 /**
  * Sala kinowa z zestawem miejsc.
+ * Miejsca i ich numery porządkowe (ordinal 0..n-1, rzędami) pochodzą ze współdzielonego SeatLayout –
+ * sale o identycznym układzie trzymają jeden i ten sam obiekt. Po numerach porządkowych Screening
+ * trzyma stan miejsc w zwykłej tablicy zamiast w mapie.
  */
 public class Hall {
 
     private final String name;
-    private final Map<SeatId, Seat> seatsById;
+    private final SeatLayout layout;
 
     public Hall(String name, Collection<Seat> seats) {
+        this(name, SeatLayout.of(normalizeName(name), seats));
+    }
+
+    public Hall(String name, SeatLayout layout) {
         this.name = normalizeName(name);
-        Objects.requireNonNull(seats, "seats cannot be null");
-
-        Map<SeatId, Seat> tmp = new LinkedHashMap<>();
-        for (Seat seat : seats) {
-            Objects.requireNonNull(seat, "seat cannot be null");
-            SeatId id = seat.getId();
-            if (tmp.putIfAbsent(id, seat) != null) {
-                throw new IllegalArgumentException("Duplicate seat id in hall '" + this.name + "': " + id);
-            }
-        }
-        if (tmp.isEmpty()) {
-            throw new IllegalArgumentException("Hall must have at least one seat");
-        }
-        this.seatsById = tmp;
+        this.layout = Objects.requireNonNull(layout, "layout cannot be null");
     }
 
     public String getName() {
         return name;
     }
 
+    public SeatLayout getLayout() {
+        return layout;
+    }
+
     public Seat getSeat(SeatId id) {
-        Objects.requireNonNull(id, "id cannot be null");
-        Seat seat = seatsById.get(id);
-        if (seat == null) {
+        int ordinal = ordinalOf(id);
+        if (ordinal < 0) {
             throw new NoSuchElementException("Seat not found in hall '" + name + "': " + id);
         }
-        return seat;
+        return layout.seatAt(ordinal);
+    }
+
+    public int getSeatCount() {
+        return layout.getSeatCount();
+    }
+
+    /**
+     * Numer porządkowy miejsca albo -1, gdy miejsca nie ma w sali.
+     */
+    public int ordinalOf(SeatId id) {
+        Objects.requireNonNull(id, "id cannot be null");
+        return layout.ordinalOf(id);
+    }
+
+    public Seat seatAt(int ordinal) {
+        return layout.seatAt(ordinal);
+    }
+
+    /**
+     * Rzędy w kolejności, w jakiej pojawiły się w sali (zwykle od ekranu).
+     */
+    public List<HallRow> getRows() {
+        return layout.getRows();
+    }
+
+    public int rowIndexOf(int ordinal) {
+        return layout.rowIndexOf(ordinal);
+    }
+
+    public int rowPositionOf(int ordinal) {
+        return layout.rowPositionOf(ordinal);
     }
 
     /**
-     * Zwraca niemutowalny widok miejsc (żeby nikt nie modyfikował kolekcji z zewnątrz).
+     * Niemutowalny widok miejsc (bez kopiowania), w kolejności numerów porządkowych.
      */
     public Set<Seat> getSeats() {
-        return Collections.unmodifiableSet(new LinkedHashSet<>(seatsById.values()));
+        return layout.getSeats();
+    }
+
+    /**
+     * To samo co getSeats(), jako lista – do pętli po indeksie bez iteratora.
+     */
+    public List<Seat> getSeatList() {
+        return layout.getSeatList();
     }
 
     /**
-     * Wygodna metoda dla Screening: lista wszystkich SeatId w sali.
+     * Wygodna metoda dla Screening: niemutowalny widok wszystkich SeatId w sali.
      */
     public Set<SeatId> getSeatIds() {
-        return Collections.unmodifiableSet(seatsById.keySet());
+        return layout.getSeatIds();
     }
 
     private static String normalizeName(String name) {
@@ -66,6 +101,6 @@ public class Hall {
 
     @Override
     public String toString() {
-        return "Hall{" + "name='" + name + '\'' + ", seats=" + seatsById.size() + '}';
+        return "Hall{" + "name='" + name + '\'' + ", seats=" + layout.getSeatCount() + '}';
     }
 }
@@ -0,0 +1,64 @@
+package pl.multiplex.network;
+
+import java.util.Arrays;
+
+/**
+ * Jeden rząd sali: miejsca ułożone po numerach, od najmniejszego do największego.
+ * Pozycje to kolejne miejsca rzędu, a między miejscami o nienastępujących po sobie numerach (przejścia, luki)
+ * jest jedna pozycja z ordinal -1 – niezależnie od szerokości luki. Dwa miejsca są więc obok siebie wtedy i tylko
+ * wtedy, gdy sąsiadują pozycjami, a rząd ma najwyżej 2n - 1 pozycji.
+ */
+public final class HallRow {
+
+    private final String row;
+    private final int firstOrdinal;
+    private final int[] numbers;
+    private final int[] ordinals;
+
+    /**
+     * @param firstOrdinal numer porządkowy pierwszego miejsca rzędu (miejsca rzędu mają kolejne numery porządkowe)
+     * @param numbers      numery miejsc, rosnąco
+     * @param ordinals     numery porządkowe na kolejnych pozycjach (-1 – luka)
+     */
+    HallRow(String row, int firstOrdinal, int[] numbers, int[] ordinals) {
+        this.row = row;
+        this.firstOrdinal = firstOrdinal;
+        this.numbers = numbers;
+        this.ordinals = ordinals;
+    }
+
+    public String getRow() {
+        return row;
+    }
+
+    public int getFirstNumber() {
+        return numbers[0];
+    }
+
+    /**
+     * Liczba pozycji w rzędzie (łącznie z lukami w numeracji).
+     */
+    public int width() {
+        return ordinals.length;
+    }
+
+    /**
+     * Numer porządkowy miejsca z Hall na danej pozycji albo -1, gdy w tym miejscu rzędu nie ma fotela.
+     */
+    public int ordinalAt(int position) {
+        return ordinals[position];
+    }
+
+    /**
+     * Numer porządkowy miejsca o danym numerze albo -1, gdy w rzędzie go nie ma.
+     */
+    int ordinalOf(int number) {
+        int index = Arrays.binarySearch(numbers, number);
+        return index < 0 ? -1 : firstOrdinal + index;
+    }
+
+    @Override
+    public String toString() {
+        return "HallRow{" + row + ", width=" + ordinals.length + '}';
+    }
+}
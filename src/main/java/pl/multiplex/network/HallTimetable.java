@@ -0,0 +1,59 @@
+package pl.multiplex.network;
+
+import pl.multiplex.screening.Screening;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Plan jednej sali: seanse posortowane po czasie rozpoczęcia.
+ * Seanse w sali się nie nakładają, więc razem ze startami posortowane są też końce –
+ * do wykrycia konfliktu wystarczy jeden sąsiad w drzewie (O(log n)).
+ */
+final class HallTimetable {
+
+    private final NavigableMap<LocalDateTime, Screening> byStart = new TreeMap<>();
+
+    /**
+     * Seans nachodzący na przedział [start, end) albo null, gdy sala jest wolna.
+     */
+    Screening findConflict(LocalDateTime start, LocalDateTime end) {
+        // ostatni seans, który zaczyna się przed końcem nowego – ma też najpóźniejszy koniec spośród nich
+        Map.Entry<LocalDateTime, Screening> before = byStart.lowerEntry(end);
+        if (before != null && before.getValue().getEnd().isAfter(start)) {
+            return before.getValue();
+        }
+        return null;
+    }
+
+    void add(Screening screening) {
+        byStart.put(screening.getStart(), screening);
+    }
+
+    boolean remove(Screening screening) {
+        return byStart.remove(screening.getStart(), screening);
+    }
+
+    /**
+     * Najwcześniejszy start >= after, od którego sala jest wolna przez length.
+     */
+    LocalDateTime findNextFreeSlot(LocalDateTime after, Duration length) {
+        LocalDateTime candidate = after;
+
+        Map.Entry<LocalDateTime, Screening> running = byStart.floorEntry(candidate);
+        if (running != null && running.getValue().getEnd().isAfter(candidate)) {
+            candidate = running.getValue().getEnd();
+        }
+
+        for (Screening next : byStart.tailMap(candidate, true).values()) {
+            if (!candidate.plus(length).isAfter(next.getStart())) {
+                return candidate;
+            }
+            candidate = next.getEnd();
+        }
+        return candidate;
+    }
+}
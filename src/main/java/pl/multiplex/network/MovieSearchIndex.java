@@ -0,0 +1,144 @@
+package pl.multiplex.network;
+
+import pl.multiplex.screening.Movie;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Odwrócony indeks filmów do wyszukiwania po fragmencie tytułu, reżysera albo tematu.
+ * <p>
+ * Każdy tekst rozbijamy na n-gramy długości 1..3 (n-gram -> filmy, które go zawierają).
+ * Krótkie zapytanie (do 3 znaków) to jedno trafienie w mapę, dłuższe – przecięcie zbiorów dla jego
+ * trigramów i sprawdzenie kandydatów przez contains. Obsługuje więc zarówno prefiksy ("search as you type"),
+ * jak i dowolne podciągi.
+ * <p>
+ * Film liczy się jeden raz (klucz tytuł + reżyser), a licznik odwołań pilnuje, żeby zniknął z indeksu
+ * dopiero po usunięciu ostatniego seansu.
+ */
+final class MovieSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final Map<String, IndexedMovie> moviesByKey = new ConcurrentHashMap<>();
+    private final Map<String, Set<IndexedMovie>> moviesByGram = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    synchronized void add(Movie movie) {
+        String key = movieKey(movie);
+        IndexedMovie indexed = moviesByKey.get(key);
+        if (indexed != null) {
+            indexed.refCount++;
+            return;
+        }
+
+        indexed = new IndexedMovie(movie, sequence.incrementAndGet(), searchableTexts(movie));
+        moviesByKey.put(key, indexed);
+        for (String gram : grams(indexed)) {
+            moviesByGram.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(indexed);
+        }
+    }
+
+    synchronized void remove(Movie movie) {
+        String key = movieKey(movie);
+        IndexedMovie indexed = moviesByKey.get(key);
+        if (indexed == null || --indexed.refCount > 0) {
+            return;
+        }
+
+        moviesByKey.remove(key);
+        for (String gram : grams(indexed)) {
+            Set<IndexedMovie> set = moviesByGram.get(gram);
+            if (set != null) {
+                set.remove(indexed);
+                if (set.isEmpty()) moviesByGram.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Filmy, których tytuł, reżyser albo temat zawiera zapytanie (bez rozróżniania wielkości liter),
+     * w kolejności dodania do indeksu.
+     */
+    List<Movie> search(String query) {
+        String q = query.toLowerCase(Locale.ROOT);
+
+        Collection<IndexedMovie> candidates;
+        if (q.length() <= GRAM) {
+            candidates = moviesByGram.getOrDefault(q, Set.of());
+        } else {
+            candidates = smallestTrigramSet(q);
+        }
+
+        List<IndexedMovie> hits = new ArrayList<>();
+        for (IndexedMovie candidate : candidates) {
+            if (q.length() <= GRAM || candidate.matches(q)) {
+                hits.add(candidate);
+            }
+        }
+        hits.sort(Comparator.comparingLong(m -> m.sequence));
+
+        List<Movie> out = new ArrayList<>(hits.size());
+        for (IndexedMovie hit : hits) {
+            out.add(hit.movie);
+        }
+        return List.copyOf(out);
+    }
+
+    private Set<IndexedMovie> smallestTrigramSet(String q) {
+        Set<IndexedMovie> smallest = null;
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            Set<IndexedMovie> set = moviesByGram.get(q.substring(i, i + GRAM));
+            if (set == null) return Set.of();
+            if (smallest == null || set.size() < smallest.size()) smallest = set;
+        }
+        return smallest;
+    }
+
+    private static Set<String> grams(IndexedMovie movie) {
+        Set<String> out = new HashSet<>();
+        for (String text : movie.texts) {
+            for (int len = 1; len <= GRAM; len++) {
+                for (int i = 0; i + len <= text.length(); i++) {
+                    out.add(text.substring(i, i + len));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static String[] searchableTexts(Movie movie) {
+        List<String> texts = new ArrayList<>();
+        texts.add(movie.getTitle().toLowerCase(Locale.ROOT));
+        texts.add(movie.getDirector().toLowerCase(Locale.ROOT));
+        for (String theme : movie.getThemes()) {
+            texts.add(theme.toLowerCase(Locale.ROOT));
+        }
+        return texts.toArray(new String[0]);
+    }
+
+    private static String movieKey(Movie movie) {
+        return (movie.getTitle() + "|" + movie.getDirector()).toLowerCase(Locale.ROOT);
+    }
+
+    private static final class IndexedMovie {
+        private final Movie movie;
+        private final long sequence;
+        private final String[] texts;
+        private int refCount = 1;
+
+        private IndexedMovie(Movie movie, long sequence, String[] texts) {
+            this.movie = movie;
+            this.sequence = sequence;
+            this.texts = texts;
+        }
+
+        private boolean matches(String q) {
+            for (String text : texts) {
+                if (text.contains(q)) return true;
+            }
+            return false;
+        }
+    }
+}
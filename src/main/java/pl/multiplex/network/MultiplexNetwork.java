@@ -1,6 +1,17 @@
 package pl.multiplex.network;
 
+import pl.multiplex.metrics.DomainMetrics;
+import pl.multiplex.metrics.OperationMetrics;
+import pl.multiplex.sales.Reservation;
+import pl.multiplex.sales.Ticket;
+import pl.multiplex.sales.TicketOrder;
+import pl.multiplex.screening.Movie;
+import pl.multiplex.screening.Screening;
+import pl.multiplex.screening.ScreeningListener;
+
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Sieć kin (wiele lokalizacji w jednym systemie).
@@ -8,6 +19,15 @@ import java.util.*;
 public class MultiplexNetwork {
 
     private final List<Cinema> cinemas = new ArrayList<>();
+    private final List<ScreeningListener> screeningListeners = new ArrayList<>();
+    private final List<NetworkListener> networkListeners = new ArrayList<>();
+    private final MovieSearchIndex movieIndex = new MovieSearchIndex();
+    private final Map<String, Screening> screeningsById = new ConcurrentHashMap<>();
+    private final BookingIndex bookings = new BookingIndex();
+
+    public MultiplexNetwork() {
+        screeningListeners.add(bookings);
+    }
 
     public void addCinema(Cinema cinema) {
         Objects.requireNonNull(cinema, "cinema cannot be null");
@@ -16,26 +36,229 @@ public class MultiplexNetwork {
             throw new IllegalArgumentException("Cinema with name '" + cinema.getName() + "' already exists");
         }
         cinemas.add(cinema);
+        cinema.attachTo(this);
+        for (Screening s : cinema.getScreenings()) {
+            movieIndex.add(s.getMovie());
+            screeningsById.put(s.getScreeningId(), s);
+            bookings.screeningAdded(s);
+        }
+        for (ScreeningListener listener : screeningListeners) {
+            cinema.addScreeningListener(listener);
+        }
+        for (NetworkListener listener : networkListeners) {
+            listener.onCinemaAdded(cinema);
+        }
     }
 
     public void removeCinema(Cinema cinema) {
         Objects.requireNonNull(cinema, "cinema cannot be null");
-        cinemas.remove(cinema);
+        if (cinemas.remove(cinema)) {
+            cinema.detach();
+            for (Screening s : cinema.getScreenings()) {
+                movieIndex.remove(s.getMovie());
+                screeningsById.remove(s.getScreeningId(), s);
+                bookings.screeningRemoved(s);
+            }
+            for (ScreeningListener listener : screeningListeners) {
+                cinema.removeScreeningListener(listener);
+            }
+            for (NetworkListener listener : networkListeners) {
+                listener.onCinemaRemoved(cinema);
+            }
+        }
+    }
+
+    public void addNetworkListener(NetworkListener listener) {
+        networkListeners.add(Objects.requireNonNull(listener, "listener cannot be null"));
+    }
+
+    public void removeNetworkListener(NetworkListener listener) {
+        networkListeners.remove(listener);
+    }
+
+    /**
+     * Podpina obserwatora pod seanse we wszystkich kinach sieci (np. ReservationExpiryWheel).
+     */
+    public void addScreeningListener(ScreeningListener listener) {
+        Objects.requireNonNull(listener, "listener cannot be null");
+        screeningListeners.add(listener);
+        for (Cinema cinema : cinemas) {
+            cinema.addScreeningListener(listener);
+        }
+    }
+
+    public void removeScreeningListener(ScreeningListener listener) {
+        if (screeningListeners.remove(listener)) {
+            for (Cinema cinema : cinemas) {
+                cinema.removeScreeningListener(listener);
+            }
+        }
     }
 
     public Cinema findCinema(String name) {
-        Objects.requireNonNull(name, "name cannot be null");
-        String key = name.trim();
-        return cinemas.stream()
-                .filter(c -> c.getName().equalsIgnoreCase(key))
-                .findFirst()
-                .orElseThrow(() -> new NoSuchElementException("Cinema not found: " + key)); // było z dr Turkiem :)
+        OperationMetrics metrics = DomainMetrics.NETWORK_FIND_CINEMA;
+        long started = metrics.start();
+        try {
+            Objects.requireNonNull(name, "name cannot be null");
+            String key = name.trim();
+            Cinema cinema = cinemas.stream()
+                    .filter(c -> c.getName().equalsIgnoreCase(key))
+                    .findFirst()
+                    .orElseThrow(() -> new NoSuchElementException("Cinema not found: " + key)); // było z dr Turkiem :)
+            metrics.success(started);
+            return cinema;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Seans po identyfikatorze w całej sieci (np. z TicketRecord.getScreeningId()).
+     */
+    public Screening findScreening(String screeningId) {
+        OperationMetrics metrics = DomainMetrics.NETWORK_FIND_SCREENING;
+        long started = metrics.start();
+        try {
+            String key = Objects.requireNonNull(screeningId, "screeningId cannot be null").trim();
+            Screening screening = screeningsById.get(key);
+            if (screening == null) {
+                throw new NoSuchElementException("Screening not found: " + key);
+            }
+            metrics.success(started);
+            return screening;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Aktywna rezerwacja po identyfikatorze, bez wiedzy, w którym kinie i na który seans.
+     */
+    public Reservation findReservation(String reservationId) {
+        OperationMetrics metrics = DomainMetrics.NETWORK_FIND_RESERVATION;
+        long started = metrics.start();
+        try {
+            String key = Objects.requireNonNull(reservationId, "reservationId cannot be null").trim();
+            Reservation reservation = bookings.reservation(key);
+            if (reservation == null) {
+                throw new NoSuchElementException("Reservation not found: " + key);
+            }
+            metrics.success(started);
+            return reservation;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Anulowanie rezerwacji samym identyfikatorem (infolinia) – seans znajdujemy w indeksie sieci.
+     */
+    public void cancelReservation(String reservationId) {
+        Reservation reservation = findReservation(reservationId);
+        reservation.getScreening().cancelReservation(reservation.getReservationId());
+    }
+
+    public TicketOrder findOrder(String orderId) {
+        OperationMetrics metrics = DomainMetrics.NETWORK_FIND_ORDER;
+        long started = metrics.start();
+        try {
+            String key = Objects.requireNonNull(orderId, "orderId cannot be null").trim();
+            TicketOrder order = bookings.order(key);
+            if (order == null) {
+                throw new NoSuchElementException("Order not found: " + key);
+            }
+            metrics.success(started);
+            return order;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Bilet po identyfikatorze (np. skan na bramce) – razem z seansem, na który wpuszcza.
+     */
+    public Ticket findTicket(String ticketId) {
+        OperationMetrics metrics = DomainMetrics.NETWORK_FIND_TICKET;
+        long started = metrics.start();
+        try {
+            String key = Objects.requireNonNull(ticketId, "ticketId cannot be null").trim();
+            Ticket ticket = bookings.ticket(key);
+            if (ticket == null) {
+                throw new NoSuchElementException("Ticket not found: " + key);
+            }
+            metrics.success(started);
+            return ticket;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Zdejmuje z indeksu rezerwacji, zamówień i biletów wpisy seansów zakończonych przed {@code endedBefore}
+     * (np. raz na dobę: {@code evictBookings(LocalDateTime.now().minusDays(7))}). Seanse zostają w repertuarze.
+     * Zwraca liczbę seansów, których wpisy zdjęto.
+     */
+    public int evictBookings(LocalDateTime endedBefore) {
+        Objects.requireNonNull(endedBefore, "endedBefore cannot be null");
+        return bookings.evictEnded(endedBefore);
+    }
+
+    /**
+     * Wyszukiwanie filmu we wszystkich kinach sieci – jeden wspólny indeks, bez przechodzenia po kinach.
+     */
+    public List<Movie> findMovie(String query) {
+        Objects.requireNonNull(query, "query cannot be null");
+        String q = query.trim();
+        if (q.isBlank()) throw new IllegalArgumentException("query cannot be blank");
+        OperationMetrics metrics = DomainMetrics.NETWORK_FIND_MOVIE;
+        long started = metrics.start();
+        try {
+            List<Movie> out = movieIndex.search(q);
+            metrics.success(started);
+            return out;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
     }
 
     public List<Cinema> getCinemas() {
         return Collections.unmodifiableList(cinemas);
     }
 
+    // -------------------
+    // zgłoszenia od kin (Cinema.attachTo)
+    // -------------------
+
+    void hallAdded(Cinema cinema, Hall hall) {
+        for (NetworkListener listener : networkListeners) {
+            listener.onHallAdded(cinema, hall);
+        }
+    }
+
+    void screeningScheduled(Cinema cinema, Screening screening) {
+        movieIndex.add(screening.getMovie());
+        screeningsById.put(screening.getScreeningId(), screening);
+        bookings.screeningAdded(screening);
+        for (NetworkListener listener : networkListeners) {
+            listener.onScheduled(cinema, screening);
+        }
+    }
+
+    void screeningUnscheduled(Cinema cinema, Screening screening) {
+        movieIndex.remove(screening.getMovie());
+        screeningsById.remove(screening.getScreeningId(), screening);
+        bookings.screeningRemoved(screening);
+        for (NetworkListener listener : networkListeners) {
+            listener.onUnscheduled(cinema, screening);
+        }
+    }
+
     @Override
     public String toString() {
         return "MultiplexNetwork{cinemas=" + cinemas.size() + '}';
@@ -0,0 +1,28 @@
+package pl.multiplex.network;
+
+import pl.multiplex.screening.Screening;
+
+/**
+ * Obserwator zmian w strukturze sieci: kina, sale i repertuar.
+ * Zmiany stanu miejsc w seansach obserwuje się osobno – przez ScreeningListener.
+ */
+public interface NetworkListener {
+
+    /**
+     * Kino dołączone do sieci razem z salami i seansami, które już miało.
+     */
+    default void onCinemaAdded(Cinema cinema) {
+    }
+
+    default void onCinemaRemoved(Cinema cinema) {
+    }
+
+    default void onHallAdded(Cinema cinema, Hall hall) {
+    }
+
+    default void onScheduled(Cinema cinema, Screening screening) {
+    }
+
+    default void onUnscheduled(Cinema cinema, Screening screening) {
+    }
+}
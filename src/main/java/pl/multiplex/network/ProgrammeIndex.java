@@ -0,0 +1,95 @@
+package pl.multiplex.network;
+
+import pl.multiplex.screening.Screening;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Repertuar kina uporządkowany w czasie.
+ * Seanse trzymamy pogrupowane po dniach – lista dnia jest już posortowana i niemutowalna,
+ * więc zapytanie o zakres dat to tylko widok subMap + sklejenie gotowych list.
+ * Dodatkowo cache'ujemy okna tygodniowe (getProgrammeNextWeek); zmiana dnia D unieważnia
+ * wyłącznie te okna, które zawierają D.
+ */
+final class ProgrammeIndex {
+
+    static final int WEEK_DAYS = 7;
+    private static final int MAX_CACHED_WEEKS = 32;
+
+    static final Comparator<Screening> PROGRAMME_ORDER = Comparator.comparing(Screening::getStart)
+            .thenComparing(s -> s.getHall().getName(), String.CASE_INSENSITIVE_ORDER);
+
+    private final ConcurrentNavigableMap<LocalDate, List<Screening>> days = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<LocalDate, List<Screening>> weekWindows = new ConcurrentSkipListMap<>();
+
+    synchronized void add(Screening screening) {
+        LocalDate day = screening.getStart().toLocalDate();
+        List<Screening> updated = new ArrayList<>(days.getOrDefault(day, List.of()));
+        int pos = Collections.binarySearch(updated, screening, PROGRAMME_ORDER);
+        updated.add(pos < 0 ? -pos - 1 : pos, screening);
+        days.put(day, List.copyOf(updated));
+        invalidate(day);
+    }
+
+    synchronized void remove(Screening screening) {
+        LocalDate day = screening.getStart().toLocalDate();
+        List<Screening> current = days.get(day);
+        if (current == null) return;
+
+        List<Screening> updated = new ArrayList<>(current);
+        updated.remove(screening);
+        if (updated.isEmpty()) {
+            days.remove(day);
+        } else {
+            days.put(day, List.copyOf(updated));
+        }
+        invalidate(day);
+    }
+
+    List<Screening> day(LocalDate day) {
+        return days.getOrDefault(day, List.of());
+    }
+
+    /**
+     * Seanse z dni [from, to] (obie granice włącznie), w kolejności repertuaru.
+     */
+    List<Screening> range(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) return List.of();
+
+        Collection<List<Screening>> window = days.subMap(from, true, to, true).values();
+        if (window.size() == 1) return window.iterator().next();
+
+        List<Screening> out = new ArrayList<>();
+        for (List<Screening> day : window) {
+            out.addAll(day);
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    /**
+     * Okno [from, from + 7 dni] – z cache, liczone ponownie tylko po zmianie któregoś z tych dni.
+     */
+    List<Screening> week(LocalDate from) {
+        List<Screening> cached = weekWindows.get(from);
+        if (cached != null) return cached;
+
+        synchronized (this) {
+            cached = weekWindows.get(from);
+            if (cached == null) {
+                cached = range(from, from.plusDays(WEEK_DAYS));
+                if (weekWindows.size() >= MAX_CACHED_WEEKS) {
+                    weekWindows.pollFirstEntry();
+                }
+                weekWindows.put(from, cached);
+            }
+            return cached;
+        }
+    }
+
+    private void invalidate(LocalDate day) {
+        weekWindows.subMap(day.minusDays(WEEK_DAYS), true, day, true).clear();
+    }
+}
@@ -0,0 +1,254 @@
+package pl.multiplex.network;
+
+import pl.multiplex.shared.SeatId;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * Niemutowalny układ miejsc sali (flyweight) – współdzielony przez wszystkie sale o identycznym układzie.
+ * <p>
+ * Miejsca leżą w tablicy rzędami (rzędy w kolejności pojawienia się, w rzędzie rosnąco po numerze),
+ * a indeks w tej tablicy to numer porządkowy miejsca (ordinal). Nazwy rzędów są internowane.
+ * Wyszukiwanie miejsca po SeatId to rząd z małej mapy + wyszukiwanie binarne numeru w rzędzie,
+ * bez mapy z wpisem na każde miejsce. Pamięć zależy od liczby miejsc, nie od rozpiętości numerów.
+ * <p>
+ * {@link #of(Collection)} zwraca kanoniczną instancję: drugi taki sam układ nie zajmuje już pamięci.
+ * Rejestr trzyma układy słabo – układ, którego nie używa już żadna sala (np. z odczytu snapshotu
+ * albo usuniętej sali), odśmieca się normalnie.
+ */
+public final class SeatLayout {
+
+    private static final Map<SeatLayout, WeakReference<SeatLayout>> CANONICAL = new WeakHashMap<>();
+
+    private final Seat[] seats;
+    private final List<HallRow> rows;
+    private final Map<String, HallRow> rowsByName;
+    private final int[] rowIndexByOrdinal;
+    private final int[] rowPositionByOrdinal;
+    private final int hash;
+
+    private final List<Seat> seatList;
+    private final Set<Seat> seatSet;
+    private final Set<SeatId> seatIdSet;
+
+    private SeatLayout(Seat[] seats) {
+        this.seats = seats;
+        this.rowIndexByOrdinal = new int[seats.length];
+        this.rowPositionByOrdinal = new int[seats.length];
+
+        List<HallRow> tmpRows = new ArrayList<>();
+        Map<String, HallRow> tmpByName = new HashMap<>();
+        int start = 0;
+        while (start < seats.length) {
+            String row = seats[start].getId().row();
+            int end = start;
+            while (end < seats.length && seats[end].getId().row().equals(row)) end++;
+
+            // luka w numeracji (dowolnie szeroka) to jedna pozycja -1 – sąsiedztwo zostaje, rozpiętość nie liczy się
+            int[] numbers = new int[end - start];
+            int[] positions = new int[2 * (end - start) - 1];
+            int width = 0;
+            for (int ordinal = start; ordinal < end; ordinal++) {
+                int number = seats[ordinal].getId().number();
+                if (ordinal > start && number != numbers[ordinal - start - 1] + 1) {
+                    positions[width++] = -1;
+                }
+                numbers[ordinal - start] = number;
+                rowIndexByOrdinal[ordinal] = tmpRows.size();
+                rowPositionByOrdinal[ordinal] = width;
+                positions[width++] = ordinal;
+            }
+
+            HallRow hallRow = new HallRow(row, start, numbers, Arrays.copyOf(positions, width));
+            tmpRows.add(hallRow);
+            tmpByName.put(row, hallRow);
+            start = end;
+        }
+        this.rows = List.copyOf(tmpRows);
+        this.rowsByName = tmpByName;
+
+        int h = 1;
+        for (Seat seat : seats) {
+            h = 31 * h + seat.getId().hashCode();
+            h = 31 * h + seat.getZone().hashCode();
+        }
+        this.hash = h;
+
+        this.seatList = Collections.unmodifiableList(Arrays.asList(seats));
+        this.seatSet = new SeatSetView();
+        this.seatIdSet = new SeatIdSetView();
+    }
+
+    /**
+     * Układ z podanych miejsc (kolejność wejściowa nie ma znaczenia – miejsca są układane rzędami).
+     */
+    public static SeatLayout of(Collection<Seat> seats) {
+        return of(null, seats);
+    }
+
+    /**
+     * Jak of(seats), ale błąd zduplikowanego miejsca podaje nazwę sali.
+     */
+    static SeatLayout of(String hallName, Collection<Seat> seats) {
+        Objects.requireNonNull(seats, "seats cannot be null");
+
+        Map<String, List<Seat>> byRow = new LinkedHashMap<>();
+        for (Seat seat : seats) {
+            Objects.requireNonNull(seat, "seat cannot be null");
+            byRow.computeIfAbsent(seat.getId().row(), r -> new ArrayList<>()).add(seat);
+        }
+        if (byRow.isEmpty()) {
+            throw new IllegalArgumentException("Hall must have at least one seat");
+        }
+
+        Seat[] ordered = new Seat[seats.size()];
+        int i = 0;
+        for (Map.Entry<String, List<Seat>> entry : byRow.entrySet()) {
+            String row = entry.getKey().intern();
+            List<Seat> rowSeats = entry.getValue();
+            rowSeats.sort(Comparator.comparingInt(s -> s.getId().number()));
+            for (Seat seat : rowSeats) {
+                if (i > 0 && ordered[i - 1].getId().equals(seat.getId())) {
+                    throw new IllegalArgumentException(hallName == null
+                            ? "Duplicate seat id: " + seat.getId()
+                            : "Duplicate seat id in hall '" + hallName + "': " + seat.getId());
+                }
+                ordered[i++] = seat.getId().row() == row ? seat : new Seat(new SeatId(row, seat.getId().number()), seat.getZone());
+            }
+        }
+
+        return intern(new SeatLayout(ordered));
+    }
+
+    public int getSeatCount() {
+        return seats.length;
+    }
+
+    public Seat seatAt(int ordinal) {
+        return seats[ordinal];
+    }
+
+    /**
+     * Numer porządkowy miejsca albo -1, gdy miejsca nie ma w układzie.
+     */
+    public int ordinalOf(SeatId id) {
+        HallRow row = rowsByName.get(id.row());
+        return row == null ? -1 : row.ordinalOf(id.number());
+    }
+
+    public List<HallRow> getRows() {
+        return rows;
+    }
+
+    public int rowIndexOf(int ordinal) {
+        return rowIndexByOrdinal[ordinal];
+    }
+
+    public int rowPositionOf(int ordinal) {
+        return rowPositionByOrdinal[ordinal];
+    }
+
+    /**
+     * Miejsca w kolejności numerów porządkowych – widok tylko do odczytu (RandomAccess, bez kopiowania).
+     */
+    public List<Seat> getSeatList() {
+        return seatList;
+    }
+
+    public Set<Seat> getSeats() {
+        return seatSet;
+    }
+
+    public Set<SeatId> getSeatIds() {
+        return seatIdSet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SeatLayout other) || hash != other.hash || seats.length != other.seats.length) return false;
+        for (int i = 0; i < seats.length; i++) {
+            if (!seats[i].getId().equals(other.seats[i].getId()) || seats[i].getZone() != other.seats[i].getZone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "SeatLayout{" + "rows=" + rows.size() + ", seats=" + seats.length + '}';
+    }
+
+    /**
+     * Kanoniczna instancja – klucz i wartość słabe, więc wpis znika razem z ostatnią salą używającą układu.
+     */
+    private static synchronized SeatLayout intern(SeatLayout candidate) {
+        WeakReference<SeatLayout> ref = CANONICAL.get(candidate);
+        SeatLayout canonical = ref == null ? null : ref.get();
+        if (canonical != null) {
+            return canonical;
+        }
+        CANONICAL.put(candidate, new WeakReference<>(candidate));
+        return candidate;
+    }
+
+    // -------------------
+    // views
+    // -------------------
+
+    private final class SeatSetView extends AbstractSet<Seat> {
+        @Override
+        public Iterator<Seat> iterator() {
+            return seatList.iterator();
+        }
+
+        @Override
+        public int size() {
+            return seats.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Seat seat)) return false;
+            int ordinal = ordinalOf(seat.getId());
+            return ordinal >= 0 && seats[ordinal].getZone() == seat.getZone();
+        }
+    }
+
+    private final class SeatIdSetView extends AbstractSet<SeatId> {
+        @Override
+        public Iterator<SeatId> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < seats.length;
+                }
+
+                @Override
+                public SeatId next() {
+                    if (next >= seats.length) throw new NoSuchElementException();
+                    return seats[next++].getId();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return seats.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof SeatId id && ordinalOf(id) >= 0;
+        }
+    }
+}
@@ -1,25 +1,37 @@
 package pl.multiplex.pricing;
 
+import pl.multiplex.network.Hall;
 import pl.multiplex.network.Seat;
 import pl.multiplex.screening.Screening;
 import pl.multiplex.screening.ScreeningClass;
 import pl.multiplex.screening.ScreeningFormat;
 import pl.multiplex.shared.Money;
+import pl.multiplex.shared.SeatId;
 import pl.multiplex.shared.SeatZone;
 
 import java.math.BigDecimal;
-import java.util.Objects;
+import java.util.*;
 
 /**
  * Prosty cennik domyślny:
  * - baza zależna od strefy (SeatZone)
  * - dopłata za 3D
  * - dopłata za seans VIP
+ * <p>
+ * Wszystkich kombinacji (format × klasa × strefa) jest tylko kilkanaście, więc liczymy je raz w konstruktorze,
+ * a priceFor zwraca gotowe, współdzielone obiekty Money (Money jest niemutowalne).
  */
 public class DefaultPricingPolicy implements PricingPolicy {
 
+    private static final SeatZone[] ZONES = SeatZone.values();
+
     private final String currency;
 
+    /**
+     * [format][klasa][strefa] -> cena
+     */
+    private final Money[][][] prices;
+
     public DefaultPricingPolicy() {
         this("PLN");
     }
@@ -29,6 +41,17 @@ public class DefaultPricingPolicy implements PricingPolicy {
         if (this.currency.isBlank()) {
             throw new IllegalArgumentException("currency cannot be blank");
         }
+
+        ScreeningFormat[] formats = ScreeningFormat.values();
+        ScreeningClass[] classes = ScreeningClass.values();
+        this.prices = new Money[formats.length][classes.length][ZONES.length];
+        for (ScreeningFormat format : formats) {
+            for (ScreeningClass clazz : classes) {
+                for (SeatZone zone : ZONES) {
+                    prices[format.ordinal()][clazz.ordinal()][zone.ordinal()] = computePrice(format, clazz, zone);
+                }
+            }
+        }
     }
 
     @Override
@@ -36,13 +59,88 @@ public class DefaultPricingPolicy implements PricingPolicy {
         Objects.requireNonNull(screening, "screening cannot be null");
         Objects.requireNonNull(seat, "seat cannot be null");
 
-        BigDecimal base = baseForZone(seat.getZone());
+        return pricesByZone(screening)[seat.getZone().ordinal()];
+    }
+
+    @Override
+    public Map<SeatId, Money> pricesFor(Screening screening, Collection<Seat> seats) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        Objects.requireNonNull(seats, "seats cannot be null");
+
+        Money[] byZone = pricesByZone(screening);
+        Map<SeatId, Money> out = new LinkedHashMap<>(seats.size() * 4 / 3 + 1);
+        for (Seat seat : seats) {
+            out.put(seat.getId(), byZone[seat.getZone().ordinal()]);
+        }
+        return Collections.unmodifiableMap(out);
+    }
+
+    @Override
+    public Money[] priceAll(Screening screening, List<Seat> seats) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        Objects.requireNonNull(seats, "seats cannot be null");
+
+        Money[] byZone = pricesByZone(screening);
+        Money[] out = new Money[seats.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = byZone[seats.get(i).getZone().ordinal()];
+        }
+        return out;
+    }
+
+    /**
+     * Pętla po numerach porządkowych układu sali – bez iteratora i bez kopiowania listy miejsc.
+     */
+    @Override
+    public Map<SeatId, Money> pricesForHall(Screening screening) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+
+        Hall hall = screening.getHall();
+        Money[] byZone = pricesByZone(screening);
+        Map<SeatId, Money> out = new LinkedHashMap<>(hall.getSeatCount() * 4 / 3 + 1);
+        for (int ordinal = 0; ordinal < hall.getSeatCount(); ordinal++) {
+            Seat seat = hall.seatAt(ordinal);
+            out.put(seat.getId(), byZone[seat.getZone().ordinal()]);
+        }
+        return Collections.unmodifiableMap(out);
+    }
+
+    /**
+     * Zliczamy miejsca per strefa i mnożymy – zamiast dodawać cenę każdego miejsca osobno.
+     */
+    @Override
+    public Money totalFor(Screening screening, Collection<Seat> seats) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        Objects.requireNonNull(seats, "seats cannot be null");
+        if (seats.isEmpty()) throw new IllegalArgumentException("seats cannot be empty");
+
+        int[] countByZone = new int[ZONES.length];
+        for (Seat seat : seats) {
+            countByZone[seat.getZone().ordinal()]++;
+        }
+
+        Money[] byZone = pricesByZone(screening);
+        Money total = null;
+        for (int z = 0; z < countByZone.length; z++) {
+            if (countByZone[z] == 0) continue;
+            Money part = byZone[z].times(countByZone[z]);
+            total = total == null ? part : total.plus(part);
+        }
+        return total;
+    }
+
+    private Money[] pricesByZone(Screening screening) {
+        return prices[screening.getFormat().ordinal()][screening.getClazz().ordinal()];
+    }
+
+    private Money computePrice(ScreeningFormat format, ScreeningClass clazz, SeatZone zone) {
+        BigDecimal base = baseForZone(zone);
 
-        if (screening.getFormat() == ScreeningFormat.THREE_D) {
+        if (format == ScreeningFormat.THREE_D) {
             base = base.add(BigDecimal.valueOf(6.00));
         }
 
-        if (screening.getClazz() == ScreeningClass.VIP) {
+        if (clazz == ScreeningClass.VIP) {
             base = base.add(BigDecimal.valueOf(10.00));
         }
 
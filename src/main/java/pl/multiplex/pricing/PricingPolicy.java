@@ -3,7 +3,63 @@ package pl.multiplex.pricing;
 import pl.multiplex.network.Seat;
 import pl.multiplex.screening.Screening;
 import pl.multiplex.shared.Money;
+import pl.multiplex.shared.SeatId;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public interface PricingPolicy {
     Money priceFor(Screening screening, Seat seat);
+
+    /**
+     * Ceny wielu miejsc jednym wywołaniem (np. do renderowania planu sali), w kolejności podanych miejsc.
+     */
+    default Map<SeatId, Money> pricesFor(Screening screening, Collection<Seat> seats) {
+        Objects.requireNonNull(seats, "seats cannot be null");
+        Map<SeatId, Money> out = new LinkedHashMap<>();
+        for (Seat seat : seats) {
+            out.put(seat.getId(), priceFor(screening, seat));
+        }
+        return Collections.unmodifiableMap(out);
+    }
+
+    /**
+     * Ceny podanych miejsc pozycyjnie (out[i] to cena seats.get(i)), bez budowania mapy –
+     * do wyceny wielu zamówień naraz (TicketFactory.createTickets).
+     */
+    default Money[] priceAll(Screening screening, List<Seat> seats) {
+        Objects.requireNonNull(seats, "seats cannot be null");
+        Money[] out = new Money[seats.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = priceFor(screening, seats.get(i));
+        }
+        return out;
+    }
+
+    /**
+     * Ceny wszystkich miejsc w sali seansu.
+     */
+    default Map<SeatId, Money> pricesForHall(Screening screening) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        return pricesFor(screening, screening.getHall().getSeats());
+    }
+
+    /**
+     * Suma cen podanych miejsc (np. wartość zamówienia).
+     */
+    default Money totalFor(Screening screening, Collection<Seat> seats) {
+        Objects.requireNonNull(seats, "seats cannot be null");
+        if (seats.isEmpty()) throw new IllegalArgumentException("seats cannot be empty");
+
+        Money total = null;
+        for (Seat seat : seats) {
+            Money price = priceFor(screening, seat);
+            total = total == null ? price : total.plus(price);
+        }
+        return total;
+    }
 }
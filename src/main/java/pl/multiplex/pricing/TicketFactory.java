@@ -1,14 +1,21 @@
 package pl.multiplex.pricing;
 
+import pl.multiplex.metrics.DomainMetrics;
+import pl.multiplex.metrics.OperationMetrics;
+import pl.multiplex.network.Hall;
 import pl.multiplex.network.Seat;
 import pl.multiplex.sales.Buyer;
 import pl.multiplex.sales.Ticket;
+import pl.multiplex.sales.TicketPurchaseRequest;
 import pl.multiplex.screening.Screening;
+import pl.multiplex.shared.IdGenerator;
+import pl.multiplex.shared.Ids;
 import pl.multiplex.shared.Money;
 import pl.multiplex.shared.SeatId;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.UUID;
 
 /**
  * Fabryka biletów: jedno miejsce, które wie jak tworzyć Ticket
@@ -17,22 +24,73 @@ import java.util.UUID;
 public class TicketFactory {
 
     private final PricingPolicy pricing;
+    private final IdGenerator ids;
 
     public TicketFactory(PricingPolicy pricing) {
+        this(pricing, Ids.generator());
+    }
+
+    public TicketFactory(PricingPolicy pricing, IdGenerator ids) {
         this.pricing = Objects.requireNonNull(pricing, "pricing cannot be null");
+        this.ids = Objects.requireNonNull(ids, "ids cannot be null");
     }
 
     public Ticket createTicket(Buyer buyer, Screening screening, SeatId seatId) {
         Objects.requireNonNull(buyer, "buyer cannot be null");
         Objects.requireNonNull(screening, "screening cannot be null");
         Objects.requireNonNull(seatId, "seatId cannot be null");
+        OperationMetrics metrics = DomainMetrics.TICKET_CREATE;
+        long started = metrics.start();
+        try {
+            // Seat potrzebny do ustalenia ceny (zone)
+            Seat seat = screening.getHall().getSeat(seatId);
 
-        // Seat potrzebny do ustalenia ceny (zone)
-        Seat seat = screening.getHall().getSeat(seatId);
+            Money price = pricing.priceFor(screening, seat);
 
-        Money price = pricing.priceFor(screening, seat);
+            String ticketId = ids.nextIdString();
+            Ticket ticket = new Ticket(ticketId, screening, seatId, buyer, price);
+            metrics.success(started);
+            return ticket;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Bilety dla wielu zamówień na ten sam seans: wszystkie miejsca wyceniamy jednym wywołaniem
+     * PricingPolicy.priceAll, zamiast pytać o cenę każdego miejsca osobno.
+     * Wynik w kolejności żądań, w każdym bilety w kolejności miejsc żądania.
+     */
+    public List<List<Ticket>> createTickets(Screening screening, List<TicketPurchaseRequest> requests) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        Objects.requireNonNull(requests, "requests cannot be null");
+        OperationMetrics metrics = DomainMetrics.TICKET_CREATE_BATCH;
+        long started = metrics.start();
+        try {
+            Hall hall = screening.getHall();
+            List<Seat> seats = new ArrayList<>();
+            for (TicketPurchaseRequest request : requests) {
+                for (SeatId seatId : request.seatIds()) {
+                    seats.add(hall.getSeat(seatId));
+                }
+            }
+            Money[] prices = pricing.priceAll(screening, seats);
 
-        String ticketId = UUID.randomUUID().toString();
-        return new Ticket(ticketId, screening, seatId, buyer, price);
+            List<List<Ticket>> out = new ArrayList<>(requests.size());
+            int i = 0;
+            for (TicketPurchaseRequest request : requests) {
+                List<Ticket> tickets = new ArrayList<>(request.seatIds().size());
+                for (SeatId seatId : request.seatIds()) {
+                    tickets.add(new Ticket(ids.nextIdString(), screening, seatId, request.buyer(), prices[i++]));
+                }
+                out.add(tickets);
+            }
+            metrics.success(started);
+            return out;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
     }
 }
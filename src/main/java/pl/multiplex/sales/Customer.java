@@ -1,7 +1,7 @@
 package pl.multiplex.sales;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -11,7 +11,7 @@ public class Customer implements Buyer {
     private final String firstName;
     private final String lastName;
 
-    private final List<Ticket> tickets = new ArrayList<>();
+    private final TicketHistory tickets = new TicketHistory();
 
     public Customer(String customerId, String firstName, String lastName) {
         this.customerId = normalize(customerId, "customerId");
@@ -23,13 +23,40 @@ public class Customer implements Buyer {
         return customerId;
     }
 
-    public List<Ticket> getTickets() {
-        return Collections.unmodifiableList(tickets);
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * Historia biletów klienta (ostatnie N, strony, nadchodzące seanse).
+     */
+    public TicketHistory getTicketHistory() {
+        return tickets;
+    }
+
+    /**
+     * Wszystkie bilety klienta w kolejności zakupu (kopia).
+     */
+    public List<TicketRecord> getTickets() {
+        return tickets.getAll();
     }
 
     public void addTickets(List<Ticket> newTickets) {
+        addTickets(newTickets, LocalDateTime.now());
+    }
+
+    public void addTickets(List<Ticket> newTickets, LocalDateTime purchasedAt) {
         Objects.requireNonNull(newTickets, "newTickets cannot be null");
-        tickets.addAll(newTickets);
+        Objects.requireNonNull(purchasedAt, "purchasedAt cannot be null");
+        List<TicketRecord> records = new ArrayList<>(newTickets.size());
+        for (Ticket ticket : newTickets) {
+            records.add(TicketRecord.of(ticket, purchasedAt));
+        }
+        tickets.addAll(records);
     }
 
     @Override
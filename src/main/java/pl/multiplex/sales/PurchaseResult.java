@@ -0,0 +1,28 @@
+package pl.multiplex.sales;
+
+import java.util.Objects;
+
+/**
+ * Wynik jednego żądania z zakupu hurtowego (Screening.buyTicketsBatch): zamówienie albo powód odmowy.
+ */
+public record PurchaseResult(TicketPurchaseRequest request, TicketOrder order, RuntimeException failure) {
+
+    public PurchaseResult {
+        Objects.requireNonNull(request, "request cannot be null");
+        if ((order == null) == (failure == null)) {
+            throw new IllegalArgumentException("Exactly one of order and failure must be set");
+        }
+    }
+
+    public static PurchaseResult success(TicketPurchaseRequest request, TicketOrder order) {
+        return new PurchaseResult(request, Objects.requireNonNull(order, "order cannot be null"), null);
+    }
+
+    public static PurchaseResult failure(TicketPurchaseRequest request, RuntimeException failure) {
+        return new PurchaseResult(request, null, Objects.requireNonNull(failure, "failure cannot be null"));
+    }
+
+    public boolean isSuccess() {
+        return order != null;
+    }
+}
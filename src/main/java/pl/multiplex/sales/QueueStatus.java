@@ -0,0 +1,21 @@
+package pl.multiplex.sales;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Stan numerka w poczekalni: pozycja (1 = następny do wpuszczenia, 0 = już wpuszczony),
+ * szacowany czas oczekiwania przy obecnym tempie wpuszczania i to, czy seans jest wyprzedany.
+ * expired – wpuszczenie minęło (po czasie albo numerek posłużył już do zakupu); trzeba stanąć w kolejce od nowa.
+ */
+public record QueueStatus(long position, Duration eta, boolean soldOut, boolean expired) {
+
+    public QueueStatus {
+        if (position < 0) throw new IllegalArgumentException("position must be >= 0");
+        Objects.requireNonNull(eta, "eta cannot be null");
+    }
+
+    public boolean isAdmitted() {
+        return position == 0 && !expired;
+    }
+}
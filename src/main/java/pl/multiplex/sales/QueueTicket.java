@@ -0,0 +1,58 @@
+package pl.multiplex.sales;
+
+import pl.multiplex.screening.Screening;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Numerek w poczekalni seansu (WaitingRoom.join). Numery rosną w kolejności wejścia, od 0.
+ * <p>
+ * Wydaje go tylko WaitingRoom (brak publicznego konstruktora), a poczekalnia przyjmuje wyłącznie numerki
+ * z własnej, bieżącej kolejki seansu – numeru nie da się podrobić ani przenieść do innej kolejki.
+ * Numerek pamięta też chwilę wejścia do kolejki i to, czy posłużył już do zakupu.
+ */
+public final class QueueTicket {
+
+    private final Screening screening;
+    private final long number;
+    final WaitingRoom.Room room;
+    final long issuedAtNanos;
+
+    private final AtomicBoolean used = new AtomicBoolean();
+
+    QueueTicket(Screening screening, long number, WaitingRoom.Room room, long issuedAtNanos) {
+        this.screening = screening;
+        this.number = number;
+        this.room = room;
+        this.issuedAtNanos = issuedAtNanos;
+    }
+
+    public Screening screening() {
+        return screening;
+    }
+
+    public long number() {
+        return number;
+    }
+
+    @Override
+    public String toString() {
+        return "QueueTicket{screening=" + screening.getScreeningId() + ", number=" + number + '}';
+    }
+
+    // -------------------
+    // admission (WaitingRoom)
+    // -------------------
+
+    boolean isUsed() {
+        return used.get();
+    }
+
+    boolean use() {
+        return used.compareAndSet(false, true);
+    }
+
+    void release() {
+        used.set(false);
+    }
+}
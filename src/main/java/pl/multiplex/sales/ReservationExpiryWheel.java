@@ -0,0 +1,202 @@
+package pl.multiplex.sales;
+
+import pl.multiplex.network.Cinema;
+import pl.multiplex.network.MultiplexNetwork;
+import pl.multiplex.screening.Screening;
+import pl.multiplex.screening.ScreeningListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Automatyczne wygaszanie rezerwacji po zadanym czasie (TTL).
+ * <p>
+ * Hashed timing wheel: koło z N kubełkami, każdy kubełek to jeden "tick" zegara.
+ * Nowa rezerwacja trafia (przez kolejkę bez blokad) do kubełka odpowiadającego jej terminowi,
+ * a jeden wątek w tle co tick przegląda tylko bieżący kubełek – nie skanujemy map rezerwacji seansów
+ * i nie tworzymy osobnego timera ani wątku na rezerwację.
+ * <p>
+ * Podpinamy do sieci: {@code wheel.attach(network); wheel.start();} – attach uzbraja też rezerwacje, które sieć już ma
+ * (np. odtworzone z dziennika).
+ */
+public class ReservationExpiryWheel implements ScreeningListener, AutoCloseable {
+
+    private static final int MAX_WHEEL_SIZE = 1 << 16;
+
+    private final long ttlNanos;
+    private final long tickNanos;
+    private final ArrayDeque<Entry>[] buckets;
+    private final int mask;
+
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final Consumer<Throwable> errorHandler;
+
+    private final long startNanos = System.nanoTime();
+    private long currentTick; // tylko wątek zegara
+
+    private ScheduledExecutorService ticker;
+
+    public ReservationExpiryWheel(Duration ttl) {
+        this(ttl, Duration.ofSeconds(1));
+    }
+
+    public ReservationExpiryWheel(Duration ttl, Duration tick) {
+        this(ttl, tick, ex -> {
+        });
+    }
+
+    /**
+     * errorHandler dostaje wyjątki z wygaszania – wołany na wątku zegara, więc powinien być szybki.
+     * Niezależnie od niego każdy błąd liczy getFailedCount(). Wyjątki obserwatorów seansu idą
+     * do Screening.setListenerErrorHandler.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ReservationExpiryWheel(Duration ttl, Duration tick, Consumer<Throwable> errorHandler) {
+        Objects.requireNonNull(ttl, "ttl cannot be null");
+        Objects.requireNonNull(tick, "tick cannot be null");
+        this.errorHandler = Objects.requireNonNull(errorHandler, "errorHandler cannot be null");
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("ttl must be > 0");
+        if (tick.isNegative() || tick.isZero()) throw new IllegalArgumentException("tick must be > 0");
+
+        this.ttlNanos = ttl.toNanos();
+        this.tickNanos = tick.toNanos();
+
+        // tyle kubełków, żeby jeden obrót koła pokrył cały TTL (wtedy każdy wpis odwiedzamy raz)
+        long ticksPerTtl = (ttlNanos + tickNanos - 1) / tickNanos + 1;
+        int size = 1;
+        while (size < ticksPerTtl && size < MAX_WHEEL_SIZE) size <<= 1;
+
+        this.buckets = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) buckets[i] = new ArrayDeque<>();
+        this.mask = size - 1;
+    }
+
+    public Duration getTtl() {
+        return Duration.ofNanos(ttlNanos);
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Rezerwacje, których wygaszanie rzuciło wyjątkiem.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public synchronized void start() {
+        if (ticker != null) return;
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reservation-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Obserwuje nowe rezerwacje w sieci i uzbraja istniejące. Termin istniejącej liczymy od jej czasu utworzenia,
+     * więc rezerwacja starsza niż TTL wygaśnie przy najbliższym ticku.
+     */
+    public void attach(MultiplexNetwork network) {
+        Objects.requireNonNull(network, "network cannot be null");
+        network.addScreeningListener(this);
+        LocalDateTime now = LocalDateTime.now();
+        for (Cinema cinema : network.getCinemas()) {
+            for (Screening screening : cinema.getScreenings()) {
+                for (Reservation reservation : screening.getReservations()) {
+                    Duration age = Duration.between(reservation.getCreatedAt(), now);
+                    long remainingNanos = age.compareTo(getTtl()) >= 0 ? 0 : ttlNanos - Math.max(0, age.toNanos());
+                    track(reservation, System.nanoTime() + remainingNanos);
+                }
+            }
+        }
+    }
+
+    public void detach(MultiplexNetwork network) {
+        network.removeScreeningListener(this);
+    }
+
+    @Override
+    public void onReserved(Screening screening, Reservation reservation) {
+        track(reservation, System.nanoTime() + ttlNanos);
+    }
+
+    private void track(Reservation reservation, long deadlineNanos) {
+        pending.add(new Entry(reservation, (deadlineNanos - startNanos + tickNanos - 1) / tickNanos));
+    }
+
+    /**
+     * Przesuwa koło do bieżącej chwili i zwalnia rezerwacje, których termin minął.
+     * Normalnie wołane przez wątek zegara; publiczne, żeby dało się sterować kołem ręcznie.
+     */
+    public synchronized void advance() {
+        long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            long deadlineTick = Math.max(currentTick, entry.deadlineTick());
+            buckets[(int) (deadlineTick & mask)].add(entry);
+        }
+
+        while (currentTick <= nowTick) {
+            expireBucket(buckets[(int) (currentTick & mask)], currentTick);
+            currentTick++;
+        }
+    }
+
+    private void expireBucket(ArrayDeque<Entry> bucket, long tick) {
+        for (int i = bucket.size(); i > 0; i--) {
+            Entry entry = bucket.poll();
+            if (entry.deadlineTick() > tick) {
+                bucket.add(entry); // termin w kolejnym obrocie koła
+                continue;
+            }
+            Reservation reservation = entry.reservation();
+            try {
+                if (reservation.getScreening().expireReservation(reservation.getReservationId())) {
+                    expiredCount.incrementAndGet();
+                }
+            } catch (RuntimeException ex) {
+                // wyjątek z obserwatora nie może zatrzymać zegara
+                failedCount.incrementAndGet();
+                reportFailure(ex);
+            }
+        }
+    }
+
+    /**
+     * Wyjątek z errorHandler też nie może zatrzymać zegara (scheduleAtFixedRate przerwałby kolejne ticki).
+     */
+    private void reportFailure(RuntimeException ex) {
+        try {
+            errorHandler.accept(ex);
+        } catch (RuntimeException ignored) {
+            // błąd już policzony w failedCount
+        }
+    }
+
+    private record Entry(Reservation reservation, long deadlineTick) {
+    }
+}
@@ -0,0 +1,288 @@
+package pl.multiplex.sales;
+
+import pl.multiplex.network.Cinema;
+import pl.multiplex.network.MultiplexNetwork;
+import pl.multiplex.network.NetworkListener;
+import pl.multiplex.screening.*;
+import pl.multiplex.shared.CurrencyCode;
+import pl.multiplex.shared.Money;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bieżące sumy sprzedaży w całej sieci: liczba biletów i przychód per kino, film, dzień seansu,
+ * format i klasa seansu.
+ * <p>
+ * Zasilane strumieniowo ze sprzedaży (onTicketsSold) – nie przeglądamy seansów ani list biletów klientów.
+ * Liczniki to LongAdder-y (rozproszone komórki zamiast jednego CAS-a), więc równoległe zakupy
+ * w różnych kinach nie walczą o tę samą linię pamięci. Przy planowaniu seansu od razu wiążemy go
+ * z licznikami jego wymiarów, więc zakup to kilka dodawań, bez szukania w mapach.
+ * <p>
+ * Sprzedaż sprzed podpięcia seansu bierzemy z jego ScreeningOccupancy, ale tylko za pierwszym razem – seans, który
+ * wraca do repertuaru (albo kino dodane ponownie), nie wnosi jej drugi raz. Zakup w trakcie tego odczytu może
+ * zostać policzony i w odczycie, i w onTicketsSold; nadwyżkę ponad liczniki seansu zdejmuje najbliższy refresh().
+ * <p>
+ * Czytelnicy dostają niemutowalny SalesReport odświeżany w tle co refreshInterval (albo na żądanie
+ * przez refresh()) – zapytanie to odczyt gotowej mapy.
+ * <p>
+ * Podpinamy do sieci: {@code aggregator.attach(network); aggregator.start();}
+ */
+public class SalesAggregator implements NetworkListener, ScreeningListener, AutoCloseable {
+
+    private final long refreshNanos;
+
+    private final Totals total = new Totals();
+    private final Map<String, Totals> byCinema = new ConcurrentHashMap<>();
+    private final Map<Movie, Totals> byMovie = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Totals> byDay = new ConcurrentHashMap<>();
+    private final Map<ScreeningFormat, Totals> byFormat = new ConcurrentHashMap<>();
+    private final Map<ScreeningClass, Totals> byClass = new ConcurrentHashMap<>();
+
+    private final Map<String, Movie> moviesByKey = new ConcurrentHashMap<>();
+    private final Map<Screening, Binding> bindings = new ConcurrentHashMap<>();
+    private final Set<Screening> seeded = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final Set<Binding> unreconciled = ConcurrentHashMap.newKeySet();
+
+    private volatile String currency;
+    private volatile SalesReport report;
+
+    private ScheduledExecutorService refresher;
+
+    public SalesAggregator() {
+        this(Duration.ofSeconds(1));
+    }
+
+    public SalesAggregator(Duration refreshInterval) {
+        Objects.requireNonNull(refreshInterval, "refreshInterval cannot be null");
+        if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+            throw new IllegalArgumentException("refreshInterval must be > 0");
+        }
+        this.refreshNanos = refreshInterval.toNanos();
+        this.report = buildReport();
+    }
+
+    /**
+     * Podpina się pod sieć i dolicza sprzedaż, która już była (z liczników ScreeningOccupancy).
+     * Można wołać w trakcie sprzedaży – zakupy policzone w trakcie podpinania dwa razy poprawia refresh() na końcu.
+     */
+    public void attach(MultiplexNetwork network) {
+        Objects.requireNonNull(network, "network cannot be null");
+        network.addNetworkListener(this);
+        network.addScreeningListener(this);
+        for (Cinema cinema : network.getCinemas()) {
+            onCinemaAdded(cinema);
+        }
+        refresh();
+    }
+
+    public void detach(MultiplexNetwork network) {
+        network.removeNetworkListener(this);
+        network.removeScreeningListener(this);
+    }
+
+    public synchronized void start() {
+        if (refresher != null) return;
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sales-aggregator");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleAtFixedRate(this::refresh, refreshNanos, refreshNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    /**
+     * Ostatni raport (najwyżej refreshInterval za rzeczywistością).
+     */
+    public SalesReport getReport() {
+        return report;
+    }
+
+    /**
+     * Buduje raport od razu i publikuje go dla kolejnych getReport().
+     */
+    public SalesReport refresh() {
+        for (Binding binding : unreconciled) {
+            binding.reconcile();
+            if (!binding.bound) {
+                unreconciled.remove(binding); // odpięty seans – po tej ostatniej poprawce nic już do niego nie dojdzie
+            }
+        }
+        SalesReport fresh = buildReport();
+        report = fresh;
+        return fresh;
+    }
+
+    // -------------------
+    // NetworkListener / ScreeningListener
+    // -------------------
+
+    @Override
+    public void onCinemaAdded(Cinema cinema) {
+        for (Screening screening : cinema.getScreenings()) {
+            onScheduled(cinema, screening);
+        }
+    }
+
+    @Override
+    public void onCinemaRemoved(Cinema cinema) {
+        for (Screening screening : cinema.getScreenings()) {
+            unbind(screening);
+        }
+    }
+
+    /**
+     * Wiąże seans z licznikami. Seans podpinany pierwszy raz wnosi sprzedaż, którą już ma; przy kolejnym
+     * (powrót do repertuaru, ponownie dodane kino) jego dotychczasowa sprzedaż jest już w sumach.
+     */
+    @Override
+    public void onScheduled(Cinema cinema, Screening screening) {
+        Totals[] cells = {
+                total,
+                byCinema.computeIfAbsent(cinema.getName(), k -> new Totals()),
+                byMovie.computeIfAbsent(canonical(screening.getMovie()), k -> new Totals()),
+                byDay.computeIfAbsent(screening.getStart().toLocalDate(), k -> new Totals()),
+                byFormat.computeIfAbsent(screening.getFormat(), k -> new Totals()),
+                byClass.computeIfAbsent(screening.getClazz(), k -> new Totals())
+        };
+        Binding binding = new Binding(screening, cells);
+        if (bindings.putIfAbsent(screening, binding) != null) return;
+        if (!seeded.add(screening)) return;
+
+        // komórki są już na miejscu – zakup, który umknie temu odczytowi, policzy onTicketsSold
+        ScreeningOccupancy occupancy = screening.getOccupancy();
+        Money revenue = occupancy.getRevenue();
+        int sold = occupancy.getSold();
+        if (revenue != null || sold > 0) {
+            if (revenue != null) claimCurrency(revenue);
+            binding.add(sold, revenue == null ? 0 : revenue.toMinorUnits());
+            unreconciled.add(binding);
+        }
+    }
+
+    @Override
+    public void onUnscheduled(Cinema cinema, Screening screening) {
+        unbind(screening);
+    }
+
+    @Override
+    public void onTicketsSold(Screening screening, TicketOrder order) {
+        Binding binding = bindings.get(screening);
+        if (binding == null) return; // seans spoza podpiętej sieci
+
+        Money revenue = order.getTotal();
+        claimCurrency(revenue);
+        binding.add(order.getTickets().size(), revenue.toMinorUnits());
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    private void unbind(Screening screening) {
+        Binding binding = bindings.remove(screening);
+        if (binding != null) {
+            binding.bound = false;
+        }
+    }
+
+    private void claimCurrency(Money revenue) {
+        if (currency == null) {
+            currency = revenue.currency();
+        }
+    }
+
+    /**
+     * Jeden obiekt Movie na film (tytuł + reżyser), nawet jeśli kina trzymają osobne egzemplarze.
+     */
+    private Movie canonical(Movie movie) {
+        String key = (movie.getTitle() + "|" + movie.getDirector()).toLowerCase(Locale.ROOT);
+        return moviesByKey.computeIfAbsent(key, k -> movie);
+    }
+
+    private SalesReport buildReport() {
+        String c = currency == null ? CurrencyCode.PLN.getCode() : currency;
+        return new SalesReport(
+                LocalDateTime.now(),
+                total.toSalesTotals(c),
+                freeze(byCinema, c, new TreeMap<>(String.CASE_INSENSITIVE_ORDER)),
+                freeze(byMovie, c, new LinkedHashMap<>()),
+                freeze(byDay, c, new TreeMap<>()),
+                freeze(byFormat, c, new EnumMap<>(ScreeningFormat.class)),
+                freeze(byClass, c, new EnumMap<>(ScreeningClass.class))
+        );
+    }
+
+    private static <K> Map<K, SalesTotals> freeze(Map<K, Totals> live, String currency, Map<K, SalesTotals> out) {
+        for (Map.Entry<K, Totals> entry : live.entrySet()) {
+            out.put(entry.getKey(), entry.getValue().toSalesTotals(currency));
+        }
+        return Collections.unmodifiableMap(out);
+    }
+
+    /**
+     * Seans podpięty pod liczniki i to, co do nich wniósł (żeby nadwyżkę z podpinania dało się zdjąć z tych samych komórek).
+     */
+    private static final class Binding {
+        private final Screening screening;
+        private final Totals[] cells;
+        private final LongAdder tickets = new LongAdder();
+        private final LongAdder revenueMinor = new LongAdder();
+        private volatile boolean bound = true;
+
+        private Binding(Screening screening, Totals[] cells) {
+            this.screening = screening;
+            this.cells = cells;
+        }
+
+        private void add(long ticketCount, long minor) {
+            for (Totals cell : cells) {
+                cell.tickets.add(ticketCount);
+                cell.revenueMinor.add(minor);
+            }
+            tickets.add(ticketCount);
+            revenueMinor.add(minor);
+        }
+
+        /**
+         * Nasze sumy czytamy przed licznikami seansu: seans ma wtedy co najmniej to, co onTicketsSold zdążył nam
+         * podać, więc nadwyżka to najwyżej zakupy policzone dwa razy – nigdy nie zdejmujemy za dużo.
+         * Zakup jeszcze w toku zaniża nadwyżkę; resztę zdejmie kolejny refresh(). Po ponownym podpięciu seansu
+         * jego nowa sprzedaż tylko podnosi liczniki seansu, więc stare wiązanie nadal nie zdejmie za dużo.
+         */
+        private synchronized void reconcile() {
+            long extraTickets = tickets.sum();
+            long extraMinor = revenueMinor.sum();
+            ScreeningOccupancy occupancy = screening.getOccupancy();
+            extraTickets -= occupancy.getSold();
+            extraMinor -= occupancy.getRevenueMinor();
+            if (extraTickets > 0 || extraMinor > 0) {
+                add(-Math.max(0, extraTickets), -Math.max(0, extraMinor));
+            }
+        }
+    }
+
+    private static final class Totals {
+        private final LongAdder tickets = new LongAdder();
+        private final LongAdder revenueMinor = new LongAdder();
+
+        private SalesTotals toSalesTotals(String currency) {
+            return new SalesTotals(tickets.sum(), Money.ofMinor(revenueMinor.sum(), currency));
+        }
+    }
+}
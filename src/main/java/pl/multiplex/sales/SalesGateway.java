@@ -0,0 +1,292 @@
+package pl.multiplex.sales;
+
+import pl.multiplex.network.Cinema;
+import pl.multiplex.network.MultiplexNetwork;
+import pl.multiplex.network.NetworkListener;
+import pl.multiplex.pricing.TicketFactory;
+import pl.multiplex.screening.Screening;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Brama sprzedaży: rezerwacje i zakupy z dowolnej liczby wątków (także wirtualnych) trafiają do kolejki
+ * seansu, a kolejkę opróżnia zawsze jeden "pisarz" naraz – paczkami po batchSize poleceń.
+ * <p>
+ * Na gorącym seansie (premiera) żądania nie ścigają się więc o te same miejsca w SeatStateTable –
+ * idą po kolei, bez nieudanych CAS-ów i ponowień. Kolejne zakupy z jednej paczki idą razem przez
+ * Screening.buyTicketsBatch (jedna wycena, jedno odświeżenie indeksu miejsc). Pisarz to wirtualny wątek uruchamiany tylko wtedy, gdy
+ * kolejka coś ma; po paczce oddaje miejsce i wraca na koniec, jeśli zostały polecenia. Zimny seans nie ma
+ * żadnego wątku, a jego kolejka powstaje przy pierwszym żądaniu.
+ * <p>
+ * Wynik dostajemy jako CompletableFuture; błąd domenowy (np. miejsce zajęte) kończy future wyjątkiem.
+ * Zależne etapy bez "Async" wykonują się na wątku pisarza – powinny być krótkie.
+ * <p>
+ * Podpinamy do sieci, żeby kolejki zdjętych seansów nie zostawały w pamięci: {@code gateway.attach(network);}
+ * Polecenia dla seansu zdjętego z repertuaru (także te, które czekały jeszcze w kolejce) kończą się
+ * IllegalStateException – nie powstaje dla niego nowa kolejka, więc nie ma drugiego pisarza obok dokańczającego
+ * paczkę. Po ponownym zaplanowaniu seans dostaje nową kolejkę.
+ */
+public class SalesGateway implements NetworkListener, AutoCloseable {
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final TicketFactory ticketFactory;
+    private final int batchSize;
+    private final ExecutorService writers;
+    private final Map<Screening, Lane> lanes = new ConcurrentHashMap<>();
+    private final Set<Screening> unscheduled = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private volatile boolean closed;
+
+    public SalesGateway(TicketFactory ticketFactory) {
+        this(ticketFactory, DEFAULT_BATCH_SIZE);
+    }
+
+    public SalesGateway(TicketFactory ticketFactory, int batchSize) {
+        this.ticketFactory = Objects.requireNonNull(ticketFactory, "ticketFactory cannot be null");
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be > 0");
+        this.batchSize = batchSize;
+        this.writers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sales-writer-", 0).factory());
+    }
+
+    public void attach(MultiplexNetwork network) {
+        Objects.requireNonNull(network, "network cannot be null");
+        network.addNetworkListener(this);
+    }
+
+    public void detach(MultiplexNetwork network) {
+        network.removeNetworkListener(this);
+    }
+
+    public CompletableFuture<Reservation> reserve(Screening screening, SeatReservationRequest request) {
+        Objects.requireNonNull(request, "request cannot be null");
+        return submit(screening, new Command<>(s -> s.reserveSeats(request)));
+    }
+
+    public CompletableFuture<TicketOrder> buy(Screening screening, TicketPurchaseRequest request) {
+        Objects.requireNonNull(request, "request cannot be null");
+        return submit(screening, new PurchaseCommand(request, ticketFactory));
+    }
+
+    public CompletableFuture<Void> cancel(Screening screening, String reservationId) {
+        Objects.requireNonNull(reservationId, "reservationId cannot be null");
+        return submit(screening, new Command<>(s -> {
+            s.cancelReservation(reservationId);
+            return null;
+        }));
+    }
+
+    /**
+     * Liczba seansów, które mają teraz kolejkę (miały ruch od podpięcia / od zdjęcia z repertuaru).
+     */
+    public int getActiveLaneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Nowe polecenia są odrzucane; przyjęte wcześniej zostaną jeszcze wykonane.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writers.shutdown();
+    }
+
+    // -------------------
+    // NetworkListener
+    // -------------------
+
+    @Override
+    public void onCinemaAdded(Cinema cinema) {
+        for (Screening screening : cinema.getScreenings()) {
+            unscheduled.remove(screening);
+        }
+    }
+
+    @Override
+    public void onCinemaRemoved(Cinema cinema) {
+        for (Screening screening : cinema.getScreenings()) {
+            retire(screening);
+        }
+    }
+
+    @Override
+    public void onScheduled(Cinema cinema, Screening screening) {
+        unscheduled.remove(screening);
+    }
+
+    @Override
+    public void onUnscheduled(Cinema cinema, Screening screening) {
+        retire(screening);
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    private <T> CompletableFuture<T> submit(Screening screening, Command<T> command) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        if (closed) {
+            command.result.completeExceptionally(new IllegalStateException("Sales gateway is closed"));
+            return command.result;
+        }
+        if (unscheduled.contains(screening)) {
+            command.result.completeExceptionally(notScheduled(screening));
+            return command.result;
+        }
+        Lane lane = lanes.computeIfAbsent(screening, Lane::new);
+        if (unscheduled.contains(screening) && lanes.remove(screening, lane)) {
+            lane.retire(); // seans zdjęty w trakcie – kolejka, którą właśnie założyliśmy, odrzuci polecenie
+        }
+        lane.submit(command);
+        return command.result;
+    }
+
+    /**
+     * Najpierw znacznik, potem zdjęcie kolejki: submit, który ją jeszcze dostał albo właśnie założył, i tak zobaczy
+     * jedno z dwojga – zamkniętą kolejkę albo znacznik.
+     */
+    private void retire(Screening screening) {
+        unscheduled.add(screening);
+        Lane lane = lanes.remove(screening);
+        if (lane != null) {
+            lane.retire();
+        }
+    }
+
+    private static IllegalStateException notScheduled(Screening screening) {
+        return new IllegalStateException("Screening is not scheduled: " + screening.getScreeningId());
+    }
+
+    private static class Command<T> {
+
+        private final Function<Screening, T> action;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Command(Function<Screening, T> action) {
+            this.action = action;
+        }
+
+        void run(Screening screening) {
+            try {
+                result.complete(action.apply(screening));
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private static final class PurchaseCommand extends Command<TicketOrder> {
+
+        private final TicketPurchaseRequest request;
+
+        PurchaseCommand(TicketPurchaseRequest request, TicketFactory ticketFactory) {
+            super(s -> s.buyTickets(request, ticketFactory));
+            this.request = request;
+        }
+    }
+
+    /**
+     * Kolejka jednego seansu. Flaga scheduled gwarantuje, że w danej chwili działa najwyżej jeden pisarz.
+     * Kolejka zamknięta (seans zdjęty) odrzuca wszystko, co w niej zostało albo jeszcze do niej trafi.
+     */
+    private final class Lane implements Runnable {
+
+        private final Screening screening;
+        private final Queue<Command<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean retired;
+
+        private Lane(Screening screening) {
+            this.screening = screening;
+        }
+
+        void submit(Command<?> command) {
+            queue.add(command);
+            schedule();
+        }
+
+        void retire() {
+            retired = true;
+            schedule();
+        }
+
+        @Override
+        public void run() {
+            // po close() nie da się już wrócić na koniec kolejki wykonawcy – dokańczamy wszystko od razu
+            List<PurchaseCommand> purchases = new ArrayList<>();
+            for (int i = 0; i < batchSize || closed; i++) {
+                if (retired) {
+                    buyAll(purchases);
+                    rejectAll();
+                    break;
+                }
+                Command<?> command = queue.poll();
+                if (command == null) break;
+                if (command instanceof PurchaseCommand purchase) {
+                    purchases.add(purchase);
+                    continue;
+                }
+                buyAll(purchases);
+                command.run(screening);
+            }
+            buyAll(purchases);
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void rejectAll() {
+            for (Command<?> command; (command = queue.poll()) != null; ) {
+                command.result.completeExceptionally(notScheduled(screening));
+            }
+        }
+
+        /**
+         * Zakupy zebrane pod rząd – jednym buyTicketsBatch (kolejność przyjęcia zostaje zachowana).
+         */
+        private void buyAll(List<PurchaseCommand> purchases) {
+            if (purchases.isEmpty()) return;
+            if (purchases.size() == 1) {
+                purchases.get(0).run(screening);
+                purchases.clear();
+                return;
+            }
+
+            List<TicketPurchaseRequest> requests = new ArrayList<>(purchases.size());
+            for (PurchaseCommand purchase : purchases) {
+                requests.add(purchase.request);
+            }
+            try {
+                List<PurchaseResult> results = screening.buyTicketsBatch(requests, ticketFactory);
+                for (int i = 0; i < results.size(); i++) {
+                    PurchaseResult result = results.get(i);
+                    if (result.isSuccess()) {
+                        purchases.get(i).result.complete(result.order());
+                    } else {
+                        purchases.get(i).result.completeExceptionally(result.failure());
+                    }
+                }
+            } catch (RuntimeException ex) {
+                for (PurchaseCommand purchase : purchases) {
+                    purchase.result.completeExceptionally(ex);
+                }
+            }
+            purchases.clear();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            try {
+                writers.execute(this);
+            } catch (RejectedExecutionException ex) {
+                // brama zamknięta w trakcie – nowego pisarza już nie będzie, więc przyjęte polecenia
+                // dokańczamy w bieżącym wątku (flaga scheduled nadal jest nasza)
+                run();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package pl.multiplex.sales;
+
+import pl.multiplex.screening.Movie;
+import pl.multiplex.screening.ScreeningClass;
+import pl.multiplex.screening.ScreeningFormat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Niemutowalne zdjęcie sum sprzedaży z SalesAggregator. Dni seansów posortowane rosnąco, kina po nazwie.
+ * Klucz dnia to dzień seansu (nie dzień zakupu).
+ */
+public record SalesReport(LocalDateTime takenAt,
+                          SalesTotals total,
+                          Map<String, SalesTotals> byCinema,
+                          Map<Movie, SalesTotals> byMovie,
+                          Map<LocalDate, SalesTotals> byDay,
+                          Map<ScreeningFormat, SalesTotals> byFormat,
+                          Map<ScreeningClass, SalesTotals> byClass) {
+
+    public SalesReport {
+        Objects.requireNonNull(takenAt, "takenAt cannot be null");
+        Objects.requireNonNull(total, "total cannot be null");
+        Objects.requireNonNull(byCinema, "byCinema cannot be null");
+        Objects.requireNonNull(byMovie, "byMovie cannot be null");
+        Objects.requireNonNull(byDay, "byDay cannot be null");
+        Objects.requireNonNull(byFormat, "byFormat cannot be null");
+        Objects.requireNonNull(byClass, "byClass cannot be null");
+    }
+
+    /**
+     * Sumy kina (bez rozróżniania wielkości liter) albo null, gdy kino nic nie sprzedało.
+     */
+    public SalesTotals forCinema(String cinemaName) {
+        return byCinema.get(cinemaName);
+    }
+
+    public SalesTotals forDay(LocalDate day) {
+        return byDay.get(day);
+    }
+}
@@ -0,0 +1,16 @@
+package pl.multiplex.sales;
+
+import pl.multiplex.shared.Money;
+
+import java.util.Objects;
+
+/**
+ * Liczba sprzedanych biletów i przychód brutto dla jednego klucza raportu.
+ */
+public record SalesTotals(long tickets, Money revenue) {
+
+    public SalesTotals {
+        if (tickets < 0) throw new IllegalArgumentException("tickets cannot be negative");
+        Objects.requireNonNull(revenue, "revenue cannot be null");
+    }
+}
@@ -0,0 +1,150 @@
+package pl.multiplex.sales;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Historia biletów jednego klienta – bezpieczna wątkowo, z zapytaniami stronicowanymi.
+ * <p>
+ * Wpisy leżą w tablicy posortowanej po czasie zakupu (dopisywanie na końcu, przesunięcie tylko wtedy,
+ * gdy równoległe zamówienia przyszły nie po kolei), więc "ostatnie N" i kolejne strony to wycinek tablicy
+ * czytany od końca. Bilety na nadchodzące seanse mają osobny indeks po godzinie seansu; wpisy z przeszłości
+ * wypadają z niego leniwie przy zapytaniu.
+ * <p>
+ * Wpisy to TicketRecord (bez referencji do Screening), więc historia nie trzyma w pamięci starych seansów.
+ */
+public final class TicketHistory {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private TicketRecord[] records = new TicketRecord[4];
+    private int size;
+
+    /**
+     * Bilety na seanse, które (przy ostatnim zapytaniu) jeszcze się nie zaczęły – po godzinie seansu.
+     */
+    private final NavigableMap<UpcomingKey, TicketRecord> upcoming = new TreeMap<>();
+    private long sequence;
+
+    public void add(TicketRecord record) {
+        addAll(List.of(Objects.requireNonNull(record, "record cannot be null")));
+    }
+
+    public void addAll(Collection<TicketRecord> newRecords) {
+        Objects.requireNonNull(newRecords, "newRecords cannot be null");
+        lock.writeLock().lock();
+        try {
+            if (size + newRecords.size() > records.length) {
+                records = Arrays.copyOf(records, Math.max(records.length * 2, size + newRecords.size()));
+            }
+            for (TicketRecord record : newRecords) {
+                Objects.requireNonNull(record, "record cannot be null");
+                insertByPurchaseTime(record);
+                upcoming.put(new UpcomingKey(record.getScreeningStart(), sequence++), record);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Ostatnio kupione bilety, od najnowszego (np. "ostatnie 20 biletów").
+     */
+    public List<TicketRecord> latest(int limit) {
+        return page(0, limit);
+    }
+
+    /**
+     * Strona historii od najnowszego biletu: strona 0 to ostatnie pageSize biletów, strona 1 – kolejne starsze itd.
+     */
+    public List<TicketRecord> page(int pageIndex, int pageSize) {
+        if (pageIndex < 0) throw new IllegalArgumentException("pageIndex must be >= 0");
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be > 0");
+
+        lock.readLock().lock();
+        try {
+            long skip = (long) pageIndex * pageSize;
+            if (skip >= size) return List.of();
+
+            int from = size - 1 - (int) skip;
+            int count = (int) Math.min(pageSize, from + 1L);
+            List<TicketRecord> out = new ArrayList<>(count);
+            for (int i = from; i > from - count; i--) {
+                out.add(records[i]);
+            }
+            return Collections.unmodifiableList(out);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bilety na seanse zaczynające się od now, od najbliższego seansu.
+     */
+    public List<TicketRecord> upcoming(LocalDateTime now, int limit) {
+        Objects.requireNonNull(now, "now cannot be null");
+        if (limit <= 0) throw new IllegalArgumentException("limit must be > 0");
+
+        lock.writeLock().lock();
+        try {
+            upcoming.headMap(new UpcomingKey(now, Long.MIN_VALUE), false).clear();
+
+            List<TicketRecord> out = new ArrayList<>(Math.min(limit, upcoming.size()));
+            for (TicketRecord record : upcoming.values()) {
+                if (out.size() == limit) break;
+                out.add(record);
+            }
+            return Collections.unmodifiableList(out);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cała historia w kolejności zakupu (kopia) – dla eksportu i snapshotu; do ekranów lepiej page/latest.
+     */
+    public List<TicketRecord> getAll() {
+        lock.readLock().lock();
+        try {
+            return List.of(Arrays.copyOf(records, size));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    private void insertByPurchaseTime(TicketRecord record) {
+        int i = size;
+        while (i > 0 && records[i - 1].getPurchasedAt().isAfter(record.getPurchasedAt())) {
+            records[i] = records[i - 1];
+            i--;
+        }
+        records[i] = record;
+        size++;
+    }
+
+    private record UpcomingKey(LocalDateTime start, long sequence) implements Comparable<UpcomingKey> {
+        @Override
+        public int compareTo(UpcomingKey other) {
+            int c = start.compareTo(other.start);
+            return c != 0 ? c : Long.compare(sequence, other.sequence);
+        }
+    }
+}
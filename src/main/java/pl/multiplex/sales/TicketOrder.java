@@ -1,5 +1,8 @@
 package pl.multiplex.sales;
 
+import pl.multiplex.shared.Money;
+import pl.multiplex.shared.MoneyAccumulator;
+
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
@@ -33,6 +36,14 @@ public class TicketOrder {
         return tickets;
     }
 
+    public Money getTotal() {
+        MoneyAccumulator total = new MoneyAccumulator();
+        for (Ticket ticket : tickets) {
+            total.add(ticket.getPrice());
+        }
+        return total.toMoney();
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,90 @@
+package pl.multiplex.sales;
+
+import pl.multiplex.screening.Screening;
+import pl.multiplex.shared.Money;
+import pl.multiplex.shared.SeatId;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Zwięzły wpis historii biletów klienta.
+ * <p>
+ * W odróżnieniu od Ticket nie trzyma referencji do Screening (a przez nią do sali i filmu) – tylko
+ * identyfikator seansu i to, co pokazujemy na koncie klienta (tytuł, godzina). Dzięki temu seans zdjęty
+ * z repertuaru może zniknąć z pamięci, a historia zostaje. Sam seans, póki jest w sieci,
+ * znajdziemy przez MultiplexNetwork.findScreening(getScreeningId()).
+ */
+public final class TicketRecord {
+
+    private final String ticketId;
+    private final String screeningId;
+    private final String movieTitle;
+    private final LocalDateTime screeningStart;
+    private final SeatId seatId;
+    private final long priceMinor;
+    private final String currency;
+    private final LocalDateTime purchasedAt;
+
+    public TicketRecord(String ticketId, String screeningId, String movieTitle, LocalDateTime screeningStart,
+                        SeatId seatId, Money price, LocalDateTime purchasedAt) {
+        this.ticketId = normalize(ticketId, "ticketId");
+        this.screeningId = normalize(screeningId, "screeningId");
+        this.movieTitle = normalize(movieTitle, "movieTitle");
+        this.screeningStart = Objects.requireNonNull(screeningStart, "screeningStart cannot be null");
+        this.seatId = Objects.requireNonNull(seatId, "seatId cannot be null");
+        Objects.requireNonNull(price, "price cannot be null");
+        this.priceMinor = price.toMinorUnits();
+        this.currency = price.currency();
+        this.purchasedAt = Objects.requireNonNull(purchasedAt, "purchasedAt cannot be null");
+    }
+
+    public static TicketRecord of(Ticket ticket, LocalDateTime purchasedAt) {
+        Objects.requireNonNull(ticket, "ticket cannot be null");
+        Screening screening = ticket.getScreening();
+        return new TicketRecord(ticket.getTicketId(), screening.getScreeningId(), screening.getMovie().getTitle(),
+                screening.getStart(), ticket.getSeatId(), ticket.getPrice(), purchasedAt);
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public String getScreeningId() {
+        return screeningId;
+    }
+
+    public String getMovieTitle() {
+        return movieTitle;
+    }
+
+    public LocalDateTime getScreeningStart() {
+        return screeningStart;
+    }
+
+    public SeatId getSeatId() {
+        return seatId;
+    }
+
+    public Money getPrice() {
+        return Money.ofMinor(priceMinor, currency);
+    }
+
+    public LocalDateTime getPurchasedAt() {
+        return purchasedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "TicketRecord{" + "ticketId='" + ticketId + '\'' + ", screeningId='" + screeningId + '\''
+                + ", movie='" + movieTitle + '\'' + ", start=" + screeningStart + ", seat=" + seatId
+                + ", price=" + getPrice() + '}';
+    }
+
+    private static String normalize(String s, String field) {
+        Objects.requireNonNull(s, field + " cannot be null");
+        String out = s.trim();
+        if (out.isBlank()) throw new IllegalArgumentException(field + " cannot be blank");
+        return out;
+    }
+}
@@ -0,0 +1,280 @@
+package pl.multiplex.sales;
+
+import pl.multiplex.network.Cinema;
+import pl.multiplex.network.MultiplexNetwork;
+import pl.multiplex.network.NetworkListener;
+import pl.multiplex.pricing.TicketFactory;
+import pl.multiplex.screening.Screening;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Wirtualna poczekalnia przed sprzedażą na gorące seanse (kontrola wpuszczania).
+ * <p>
+ * Każdy seans ma własną kolejkę FIFO: wejście daje kolejny numerek, a wpuszczamy numerki po kolei
+ * w zadanym tempie (na sekundę). Kolejka to tylko dwa liczniki – wydane numerki i granica wpuszczonych –
+ * więc sto tysięcy czekających nie zajmuje pamięci, a pozycja i ETA to odejmowanie i dzielenie.
+ * Granicę przesuwamy leniwie przy każdym zapytaniu (bez wątku w tle); gdy kolejka jest pusta,
+ * niewykorzystane tempo przepada powyżej jednej sekundy zapasu, żeby po przerwie nie wpuścić tłumu naraz.
+ * <p>
+ * Wejście do wyprzedanego seansu (brak wolnych miejsc) odrzucamy od razu. Rezerwacja i zakup przez
+ * poczekalnię wymagają wpuszczonego numerka – do samego seansu trafia więc tylko tyle żądań, ile
+ * przewiduje tempo, a opóźnienie rezerwacji nie zależy od długości kolejki.
+ * <p>
+ * Wpuszczenie nie trwa wiecznie: od chwili wpuszczenia (wyliczonej z tempa kolejki, nie od pierwszego pytania –
+ * zebrane zawczasu numerki nie czekają w zapasie) numerek ma okno admissionWindow (domyślnie 10 min) na rezerwację
+ * i zakup, a udany zakup go zużywa. Nieudany zakup (np. miejsce zajęte) numerka nie zużywa – w oknie można
+ * spróbować jeszcze raz.
+ * <p>
+ * Numerki wydaje tylko poczekalnia, a przyjmuje wyłącznie własne z bieżącej kolejki seansu (QueueTicket nie ma
+ * publicznego konstruktora). Do klienta poza procesem numerek powinien wracać jako token, którego nie da się
+ * podrobić (np. podpisany po stronie frontendu), mapowany z powrotem na ten obiekt.
+ */
+public class WaitingRoom implements NetworkListener {
+
+    private static final Duration DEFAULT_ADMISSION_WINDOW = Duration.ofMinutes(10);
+
+    private final double defaultRatePerSecond;
+    private final long admissionWindowNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Screening, Room> rooms = new ConcurrentHashMap<>();
+
+    public WaitingRoom(double admissionsPerSecond) {
+        this(admissionsPerSecond, System::nanoTime);
+    }
+
+    public WaitingRoom(double admissionsPerSecond, LongSupplier nanoClock) {
+        this(admissionsPerSecond, DEFAULT_ADMISSION_WINDOW, nanoClock);
+    }
+
+    public WaitingRoom(double admissionsPerSecond, Duration admissionWindow, LongSupplier nanoClock) {
+        this.defaultRatePerSecond = requirePositiveRate(admissionsPerSecond);
+        Objects.requireNonNull(admissionWindow, "admissionWindow cannot be null");
+        if (admissionWindow.isNegative() || admissionWindow.isZero()) {
+            throw new IllegalArgumentException("admissionWindow must be > 0");
+        }
+        this.admissionWindowNanos = admissionWindow.toNanos();
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock cannot be null");
+    }
+
+    public void attach(MultiplexNetwork network) {
+        Objects.requireNonNull(network, "network cannot be null");
+        network.addNetworkListener(this);
+    }
+
+    public void detach(MultiplexNetwork network) {
+        network.removeNetworkListener(this);
+    }
+
+    /**
+     * Tempo wpuszczania dla jednego seansu (np. premiera szybciej, bo duża sala).
+     */
+    public void setAdmissionRate(Screening screening, double admissionsPerSecond) {
+        double rate = requirePositiveRate(admissionsPerSecond);
+        room(screening).setRate(rate, nanoClock.getAsLong());
+    }
+
+    /**
+     * Ustawia w kolejce. Gdy seans nie ma już wolnych miejsc – od razu IllegalStateException.
+     */
+    public QueueTicket join(Screening screening) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        if (screening.getOccupancy().isSoldOut()) {
+            throw new IllegalStateException("Screening is sold out: " + screening.getScreeningId());
+        }
+        Room room = room(screening);
+        long now = nanoClock.getAsLong();
+        return new QueueTicket(screening, room.join(now), room, now);
+    }
+
+    public QueueStatus status(QueueTicket ticket) {
+        Objects.requireNonNull(ticket, "ticket cannot be null");
+        Room room = existingRoom(ticket);
+        long now = nanoClock.getAsLong();
+        long position = room.position(ticket.number(), now);
+        boolean expired = position == 0 && (ticket.isUsed()
+                || now - Math.max(ticket.issuedAtNanos, room.admittedAt(ticket.number())) > admissionWindowNanos);
+        Duration eta = Duration.ofNanos((long) Math.ceil(position / room.ratePerNano()));
+        return new QueueStatus(position, eta, ticket.screening().getOccupancy().isSoldOut(), expired);
+    }
+
+    public boolean isAdmitted(QueueTicket ticket) {
+        return status(ticket).isAdmitted();
+    }
+
+    /**
+     * Długość kolejki seansu (numerki jeszcze niewpuszczone).
+     */
+    public long getQueueLength(Screening screening) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        Room room = rooms.get(screening);
+        return room == null ? 0 : room.waiting(nanoClock.getAsLong());
+    }
+
+    public Reservation reserve(QueueTicket ticket, SeatReservationRequest request) {
+        Objects.requireNonNull(request, "request cannot be null");
+        requireAdmitted(ticket);
+        return ticket.screening().reserveSeats(request);
+    }
+
+    /**
+     * Zakup zużywa numerek; gdy się nie uda, numerek zostaje ważny (do końca okna).
+     */
+    public TicketOrder buy(QueueTicket ticket, TicketPurchaseRequest request, TicketFactory ticketFactory) {
+        Objects.requireNonNull(request, "request cannot be null");
+        requireAdmitted(ticket);
+        if (!ticket.use()) {
+            throw new IllegalStateException("Queue ticket already used: " + ticket.number());
+        }
+        try {
+            return ticket.screening().buyTickets(request, ticketFactory);
+        } catch (RuntimeException ex) {
+            ticket.release();
+            throw ex;
+        }
+    }
+
+    // -------------------
+    // NetworkListener
+    // -------------------
+
+    @Override
+    public void onCinemaRemoved(Cinema cinema) {
+        for (Screening screening : cinema.getScreenings()) {
+            rooms.remove(screening);
+        }
+    }
+
+    @Override
+    public void onUnscheduled(Cinema cinema, Screening screening) {
+        rooms.remove(screening);
+    }
+
+    // -------------------
+    // helpers
+    // -------------------
+
+    private void requireAdmitted(QueueTicket ticket) {
+        QueueStatus status = status(ticket);
+        if (status.expired()) {
+            throw new IllegalStateException("Admission expired or already used: " + ticket.number());
+        }
+        if (!status.isAdmitted()) {
+            throw new IllegalStateException("Not admitted yet, position " + status.position()
+                    + " (eta " + status.eta().toSeconds() + " s)");
+        }
+    }
+
+    private Room room(Screening screening) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        return rooms.computeIfAbsent(screening, s -> new Room(defaultRatePerSecond, nanoClock.getAsLong()));
+    }
+
+    /**
+     * Tylko numerek z bieżącej kolejki seansu w tej poczekalni (kolejka zdjętego seansu już nie istnieje).
+     */
+    private Room existingRoom(QueueTicket ticket) {
+        Room room = rooms.get(ticket.screening());
+        if (room == null || room != ticket.room) {
+            throw new IllegalArgumentException("Unknown queue ticket: " + ticket.number());
+        }
+        return room;
+    }
+
+    private static double requirePositiveRate(double admissionsPerSecond) {
+        if (!(admissionsPerSecond > 0) || Double.isInfinite(admissionsPerSecond)) {
+            throw new IllegalArgumentException("admissionsPerSecond must be > 0");
+        }
+        return admissionsPerSecond;
+    }
+
+    /**
+     * Kolejka jednego seansu: numerki [0, issued) wydane, [0, admitted) wpuszczone.
+     * Wpuszczeni do chwili t: anchorAdmitted + (t - anchorNanos) * tempo, nie więcej niż wydane.
+     */
+    static final class Room {
+
+        private double ratePerNano;
+        private long burst;
+
+        private long issued;
+        private long admitted;
+        private long anchorAdmitted;
+        private long anchorNanos;
+        private long settledNanos; // numery < anchorAdmitted były wpuszczone najpóźniej wtedy
+
+        private Room(double ratePerSecond, long now) {
+            setRate(ratePerSecond, now);
+            anchorAdmitted = burst; // nowa kolejka startuje z sekundą zapasu
+        }
+
+        synchronized long join(long now) {
+            advance(now);
+            long number = issued++;
+            advance(now); // pusta kolejka z zapasem tempa wpuszcza od razu
+            return number;
+        }
+
+        synchronized long position(long number, long now) {
+            advance(now);
+            return number < admitted ? 0 : number - admitted + 1;
+        }
+
+        /**
+         * Chwila, w której granica minęła wpuszczony numer. Numer wydany później (pusta kolejka z zapasem tempa)
+         * wpuszczono przy wejściu – to uwzględnia wołający (chwila wydania numerka).
+         */
+        synchronized long admittedAt(long number) {
+            return boundaryTime(number + 1);
+        }
+
+        synchronized double ratePerNano() {
+            return ratePerNano;
+        }
+
+        synchronized long waiting(long now) {
+            advance(now);
+            return issued - admitted;
+        }
+
+        synchronized void setRate(double ratePerSecond, long now) {
+            if (ratePerNano > 0) {
+                advance(now);
+                settledNanos = Math.min(now, boundaryTime(admitted));
+            } else {
+                settledNanos = now;
+            }
+            this.ratePerNano = ratePerSecond / 1_000_000_000.0;
+            this.burst = Math.max(1, Math.round(ratePerSecond));
+            this.anchorAdmitted = admitted;
+            this.anchorNanos = now;
+        }
+
+        private void advance(long now) {
+            long target = anchorAdmitted + (long) ((now - anchorNanos) * ratePerNano);
+            if (target > issued + burst) {
+                // kolejka pusta dłużej niż sekundę – nie gromadzimy kredytu ponad jedną sekundę tempa
+                settledNanos = Math.min(now, boundaryTime(issued));
+                anchorAdmitted = issued + burst;
+                anchorNanos = now;
+                target = anchorAdmitted;
+            }
+            admitted = Math.max(admitted, Math.min(issued, target));
+        }
+
+        /**
+         * Kiedy granica wpuszczonych doszła (albo dojdzie) do {@code boundary}. Sprzed kotwicy znamy tylko
+         * górne oszacowanie (settledNanos) – okno liczy się wtedy na korzyść klienta.
+         */
+        private long boundaryTime(long boundary) {
+            if (boundary <= anchorAdmitted) {
+                return settledNanos;
+            }
+            return anchorNanos + (long) Math.ceil((boundary - anchorAdmitted) / ratePerNano);
+        }
+    }
+}
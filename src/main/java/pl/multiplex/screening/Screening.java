@@ -1,50 +1,92 @@
 package pl.multiplex.screening;
 
+import pl.multiplex.metrics.DomainMetrics;
+import pl.multiplex.metrics.OperationMetrics;
 import pl.multiplex.pricing.TicketFactory;
 import pl.multiplex.sales.*;
+import pl.multiplex.shared.Ids;
+import pl.multiplex.shared.Money;
 import pl.multiplex.shared.SeatId;
+import pl.multiplex.shared.SeatZone;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class Screening {
 
     private static final int CLEANING_BREAK_MIN = 20;
+    private static final int MAX_ALLOCATION_ATTEMPTS = 16;
 
+    private final String screeningId;
     private final Movie movie;
     private final pl.multiplex.network.Hall hall;
     private final LocalDateTime start;
     private final ScreeningFormat format;
     private final ScreeningClass clazz;
 
-    private final Map<SeatId, SeatStatus> seatStates;
+    private final SeatStateTable seatStates;
 
-    private final Map<String, Reservation> reservationsById = new LinkedHashMap<>();
+    /**
+     * Indeks wolnych serii miejsc – tworzony dopiero przy pierwszym "best available",
+     * żeby seanse sprzedawane tylko po konkretnych miejscach nie płaciły pamięcią.
+     */
+    private volatile SeatAllocator allocator;
+
+    private final Map<String, Reservation> reservationsById = new ConcurrentHashMap<>();
+
+    /**
+     * Zamówienia na ten seans – najwyżej tyle, ile miejsc ma sala.
+     */
+    private final Queue<TicketOrder> orders = new ConcurrentLinkedQueue<>();
+
+    private final List<ScreeningListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Consumer<Throwable> listenerErrorHandler = Screening::reportToCurrentThread;
+    private final LongAdder listenerFailures = new LongAdder();
 
     public Screening(Movie movie,
                      pl.multiplex.network.Hall hall,
                      LocalDateTime start,
                      ScreeningFormat format,
                      ScreeningClass clazz) {
+        this(Ids.next(), movie, hall, start, format, clazz);
+    }
 
+    /**
+     * Wariant z gotowym identyfikatorem – np. przy odtwarzaniu sieci z dziennika.
+     */
+    public Screening(String screeningId,
+                     Movie movie,
+                     pl.multiplex.network.Hall hall,
+                     LocalDateTime start,
+                     ScreeningFormat format,
+                     ScreeningClass clazz) {
+
+        this.screeningId = Objects.requireNonNull(screeningId, "screeningId cannot be null").trim();
+        if (this.screeningId.isBlank()) throw new IllegalArgumentException("screeningId cannot be blank");
         this.movie = Objects.requireNonNull(movie, "movie cannot be null");
         this.hall = Objects.requireNonNull(hall, "hall cannot be null");
         this.start = Objects.requireNonNull(start, "start cannot be null");
         this.format = Objects.requireNonNull(format, "format cannot be null");
         this.clazz = Objects.requireNonNull(clazz, "clazz cannot be null");
 
-        Map<SeatId, SeatStatus> tmp = new LinkedHashMap<>();
-        for (SeatId id : hall.getSeatIds()) {
-            tmp.put(id, SeatStatus.FREE);
-        }
-        this.seatStates = tmp;
+        this.seatStates = new SeatStateTable(hall);
     }
 
     // -------------------
     // getters
     // -------------------
 
+    public String getScreeningId() {
+        return screeningId;
+    }
+
     public Movie getMovie() {
         return movie;
     }
@@ -70,119 +112,624 @@ public class Screening {
         return start.plusMinutes(movie.getDurationMin() + CLEANING_BREAK_MIN);
     }
 
+    // -------------------
+    // listeners
+    // -------------------
+
+    public void addListener(ScreeningListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener cannot be null"));
+    }
+
+    public void removeListener(ScreeningListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Dostaje wyjątki rzucone przez obserwatorów. Zmiana stanu miejsc już się dokonała, więc wyjątek obserwatora
+     * nie przerywa operacji ani nie pomija kolejnych obserwatorów. Domyślnie: UncaughtExceptionHandler bieżącego wątku.
+     */
+    public void setListenerErrorHandler(Consumer<Throwable> errorHandler) {
+        this.listenerErrorHandler = Objects.requireNonNull(errorHandler, "errorHandler cannot be null");
+    }
+
+    /**
+     * Wywołania obserwatorów zakończone wyjątkiem.
+     */
+    public long getListenerFailureCount() {
+        return listenerFailures.sum();
+    }
+
     // -------------------
     // seats
     // -------------------
 
     public Set<SeatId> getFreeSeats() {
-        return seatStates.entrySet().stream()
-                .filter(e -> e.getValue() == SeatStatus.FREE)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toUnmodifiableSet());
+        OperationMetrics metrics = DomainMetrics.SCREENING_FREE_SEATS;
+        long started = metrics.start();
+        try {
+            Set<SeatId> free = seatStates.freeSeats();
+            metrics.success(started);
+            return free;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
     }
 
     public SeatStatus getSeatStatus(SeatId seatId) {
-        SeatStatus status = seatStates.get(seatId);
-        if (status == null) {
-            throw new NoSuchElementException("Seat not found in this screening: " + seatId);
-        }
-        return status;
+        return seatStates.get(ordinalOf(seatId));
+    }
+
+    /**
+     * Plan sali dla klientów: 2 bity na miejsce w kolejności Hall, z numerem wersji.
+     * Budowany raz na wersję i współdzielony – tysiąc klientów odpytujących ten sam seans nie przegląda miejsc tysiąc razy.
+     */
+    public SeatMap getSeatMap() {
+        return seatStates.seatMap();
+    }
+
+    /**
+     * Zmiany planu sali od wersji, którą klient już ma (z SeatMap albo poprzedniej delty).
+     * Gdy tej wersji nie da się uzupełnić – delta z isResyncRequired() i klient pobiera getSeatMap().
+     */
+    public SeatMapDelta getSeatMapChanges(long sinceVersion) {
+        return seatStates.changesSince(sinceVersion);
+    }
+
+    long getSeatMapVersion() {
+        return seatStates.version();
+    }
+
+    /**
+     * Liczniki wolnych / zarezerwowanych / sprzedanych miejsc i przychodu – odczyt w O(1), bez blokad.
+     */
+    public ScreeningOccupancy getOccupancy() {
+        return seatStates.occupancy();
     }
 
     // -------------------
     // reservation / purchase
     // -------------------
 
+    /**
+     * Rezerwacja "wszystko albo nic" – bezpieczna przy równoległych wywołaniach na tym samym seansie.
+     */
     public Reservation reserveSeats(SeatReservationRequest request) {
-        Objects.requireNonNull(request, "request cannot be null");
-
-        for (SeatId id : request.seatIds()) {
-            ensureSeatExists(id);
-            if (seatStates.get(id) != SeatStatus.FREE) {
-                throw new IllegalStateException("Seat is not free: " + id + " (status=" + seatStates.get(id) + ")");
-            }
+        OperationMetrics metrics = DomainMetrics.SCREENING_RESERVE;
+        long started = metrics.start();
+        try {
+            Reservation reservation = reserve(request);
+            metrics.success(started);
+            return reservation;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
         }
+    }
 
-        for (SeatId id : request.seatIds()) {
-            seatStates.put(id, SeatStatus.RESERVED);
-        }
+    private Reservation reserve(SeatReservationRequest request) {
+        Objects.requireNonNull(request, "request cannot be null");
 
-        String reservationId = UUID.randomUUID().toString();
+        int[] ordinals = ordinalsOf(request.seatIds());
         Reservation reservation = new Reservation(
-                reservationId,
+                Ids.next(),
                 this,
                 request.buyer(),
                 Set.copyOf(request.seatIds()),
                 LocalDateTime.now()
         );
 
-        reservationsById.put(reservationId, reservation);
+        holdSeats(reservation, ordinals);
+        registerReservation(reservation);
         return reservation;
     }
 
     public void cancelReservation(String reservationId) {
-        Objects.requireNonNull(reservationId, "reservationId cannot be null");
-
-        Reservation reservation = reservationsById.remove(reservationId);
-        if (reservation == null) {
-            throw new NoSuchElementException("Reservation not found: " + reservationId);
-        }
+        OperationMetrics metrics = DomainMetrics.SCREENING_CANCEL;
+        long started = metrics.start();
+        try {
+            Objects.requireNonNull(reservationId, "reservationId cannot be null");
 
-        for (SeatId id : reservation.getSeatIds()) {
-            ensureSeatExists(id);
-            if (seatStates.get(id) == SeatStatus.RESERVED) {
-                seatStates.put(id, SeatStatus.FREE);
+            if (!releaseReservation(reservationId)) {
+                throw new NoSuchElementException("Reservation not found: " + reservationId);
             }
+            metrics.success(started);
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
         }
     }
 
+    /**
+     * Zwolnienie wygasłej rezerwacji. W odróżnieniu od cancelReservation nie rzuca wyjątku,
+     * gdy rezerwacja została już anulowana – wtedy zwraca false.
+     */
+    public boolean expireReservation(String reservationId) {
+        Objects.requireNonNull(reservationId, "reservationId cannot be null");
+        return releaseReservation(reservationId);
+    }
+
     /**
      * Zakup biletów: miejsca muszą być FREE albo RESERVED (np. po wcześniejszej rezerwacji).
      * Po zakupie miejsca przechodzą na SOLD i powstaje TicketOrder.
+     * Zmiana statusów jest atomowa dla całego zamówienia (patrz SeatStateTable).
      */
     public TicketOrder buyTickets(TicketPurchaseRequest request, TicketFactory ticketFactory) {
+        OperationMetrics metrics = DomainMetrics.SCREENING_BUY;
+        long started = metrics.start();
+        try {
+            TicketOrder order = sell(request, ticketFactory);
+            metrics.success(started);
+            return order;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
+
+    private TicketOrder sell(TicketPurchaseRequest request, TicketFactory ticketFactory) {
         Objects.requireNonNull(request, "request cannot be null");
         Objects.requireNonNull(ticketFactory, "ticketFactory cannot be null");
 
-        for (SeatId id : request.seatIds()) {
-            ensureSeatExists(id);
-            SeatStatus status = seatStates.get(id);
-            if (status == SeatStatus.SOLD) {
-                throw new IllegalStateException("Seat already sold: " + id);
+        int[] ordinals = ordinalsOf(request.seatIds());
+        byte[] previous;
+        try {
+            previous = seatStates.sellAll(ordinals, this::isHeld);
+        } finally {
+            refreshAllocator(ordinals);
+        }
+
+        TicketOrder order;
+        try {
+            List<Ticket> tickets = request.seatIds().stream()
+                    .map(seatId -> ticketFactory.createTicket(request.buyer(), this, seatId))
+                    .collect(Collectors.toList());
+            claimCurrency(tickets);
+
+            order = new TicketOrder(
+                    Ids.next(),
+                    request.buyer(),
+                    tickets,
+                    LocalDateTime.now()
+            );
+        } catch (RuntimeException ex) {
+            // miejsca są już SOLD, a zamówienia nie będzie – oddajemy je
+            rollbackSale(ordinals, previous);
+            throw ex;
+        }
+
+        registerOrder(order, previous);
+        return order;
+    }
+
+    /**
+     * Zakup hurtowy (start sprzedaży): wiele żądań na ten seans w jednym przebiegu.
+     * <p>
+     * Żądania rozpatrujemy w kolejności listy – przy konflikcie o miejsce wygrywa wcześniejsze, a późniejsze
+     * dostaje porażkę (tak jak osobne buyTickets wywołane po kolei). Każde żądanie jest "wszystko albo nic".
+     * Zwycięskie żądania wyceniamy razem (TicketFactory.createTickets), indeks wolnych miejsc odświeżamy raz,
+     * a zamówienia dostają wspólny czas utworzenia. Wynik ma tyle pozycji co wejście, w tej samej kolejności.
+     */
+    public List<PurchaseResult> buyTicketsBatch(List<TicketPurchaseRequest> requests, TicketFactory ticketFactory) {
+        OperationMetrics metrics = DomainMetrics.SCREENING_BUY_BATCH;
+        long started = metrics.start();
+        try {
+            List<PurchaseResult> results = sellBatch(requests, ticketFactory);
+            metrics.success(started);
+            return results;
+        } catch (RuntimeException ex) {
+            metrics.failure(started, ex);
+            throw ex;
+        }
+    }
+
+    private List<PurchaseResult> sellBatch(List<TicketPurchaseRequest> requests, TicketFactory ticketFactory) {
+        Objects.requireNonNull(requests, "requests cannot be null");
+        Objects.requireNonNull(ticketFactory, "ticketFactory cannot be null");
+
+        PurchaseResult[] results = new PurchaseResult[requests.size()];
+        List<TicketPurchaseRequest> accepted = new ArrayList<>(requests.size());
+        int[] acceptedIndex = new int[requests.size()];
+        int[][] acceptedOrdinals = new int[requests.size()][];
+        byte[][] acceptedPrevious = new byte[requests.size()][];
+        int[] changed = new int[0];
+        int changedCount = 0;
+
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                TicketPurchaseRequest request = Objects.requireNonNull(requests.get(i), "request cannot be null");
+                try {
+                    int[] ordinals = ordinalsOf(request.seatIds());
+                    byte[] previous = seatStates.sellAll(ordinals, this::isHeld);
+
+                    if (changedCount + ordinals.length > changed.length) {
+                        changed = Arrays.copyOf(changed, Math.max(changed.length * 2, changedCount + ordinals.length));
+                    }
+                    System.arraycopy(ordinals, 0, changed, changedCount, ordinals.length);
+                    changedCount += ordinals.length;
+
+                    acceptedIndex[accepted.size()] = i;
+                    acceptedOrdinals[accepted.size()] = ordinals;
+                    acceptedPrevious[accepted.size()] = previous;
+                    accepted.add(request);
+                } catch (NoSuchElementException | IllegalArgumentException | IllegalStateException ex) {
+                    results[i] = PurchaseResult.failure(request, ex);
+                    DomainMetrics.SCREENING_BUY_BATCH.rejected(ex);
+                }
+            }
+        } finally {
+            SeatAllocator current = allocator;
+            if (current != null && changedCount > 0) {
+                current.refreshAll(Arrays.copyOf(changed, changedCount));
             }
         }
 
-        for (SeatId id : request.seatIds()) {
-            seatStates.put(id, SeatStatus.SOLD);
+        if (!accepted.isEmpty()) {
+            List<List<Ticket>> tickets;
+            try {
+                tickets = ticketFactory.createTickets(this, accepted);
+            } catch (RuntimeException ex) {
+                for (int k = 0; k < accepted.size(); k++) {
+                    rollbackSale(acceptedOrdinals[k], acceptedPrevious[k]);
+                }
+                throw ex;
+            }
+            LocalDateTime createdAt = LocalDateTime.now();
+            for (int k = 0; k < accepted.size(); k++) {
+                TicketPurchaseRequest request = accepted.get(k);
+                try {
+                    claimCurrency(tickets.get(k));
+                } catch (IllegalArgumentException ex) {
+                    rollbackSale(acceptedOrdinals[k], acceptedPrevious[k]);
+                    results[acceptedIndex[k]] = PurchaseResult.failure(request, ex);
+                    DomainMetrics.SCREENING_BUY_BATCH.rejected(ex);
+                    continue;
+                }
+                TicketOrder order = new TicketOrder(Ids.next(), request.buyer(), tickets.get(k), createdAt);
+                registerOrder(order, acceptedPrevious[k]);
+                results[acceptedIndex[k]] = PurchaseResult.success(request, order);
+            }
         }
+        return List.of(results);
+    }
 
-        List<Ticket> tickets = request.seatIds().stream()
-                .map(seatId -> ticketFactory.createTicket(request.buyer(), this, seatId))
-                .collect(Collectors.toList());
+    // -------------------
+    // restore (journal replay)
+    // -------------------
 
-        TicketOrder order = new TicketOrder(
-                UUID.randomUUID().toString(),
-                request.buyer(),
-                tickets,
-                LocalDateTime.now()
-        );
+    /**
+     * Odtwarza wcześniej zapisaną rezerwację z jej oryginalnym identyfikatorem i czasem.
+     * Miejsca muszą być wolne – tak jak w reserveSeats.
+     */
+    public void restoreReservation(Reservation reservation) {
+        Objects.requireNonNull(reservation, "reservation cannot be null");
+        if (reservation.getScreening() != this) {
+            throw new IllegalArgumentException("Reservation belongs to another screening: " + reservation.getReservationId());
+        }
+
+        holdSeats(reservation, ordinalsOf(reservation.getSeatIds()));
+        registerReservation(reservation);
+    }
 
-        if (request.buyer() instanceof Customer customer) {
-            customer.addTickets(tickets);
+    /**
+     * Odtwarza wcześniej zapisane zamówienie (bilety z oryginalnymi identyfikatorami i cenami).
+     */
+    public void restoreOrder(TicketOrder order) {
+        Objects.requireNonNull(order, "order cannot be null");
+
+        List<SeatId> seatIds = new ArrayList<>(order.getTickets().size());
+        for (Ticket ticket : order.getTickets()) {
+            if (ticket.getScreening() != this) {
+                throw new IllegalArgumentException("Ticket belongs to another screening: " + ticket.getTicketId());
+            }
+            seatIds.add(ticket.getSeatId());
         }
 
+        int[] ordinals = ordinalsOf(seatIds);
+        claimCurrency(order.getTickets());
+        byte[] previous;
+        try {
+            previous = seatStates.sellAll(ordinals, this::isHeld);
+        } finally {
+            refreshAllocator(ordinals);
+        }
+        registerOrder(order, previous);
+    }
 
-        return order;
+    // -------------------
+    // snapshot
+    // -------------------
+
+    /**
+     * Aktywne rezerwacje seansu (widok tylko do odczytu).
+     */
+    public Collection<Reservation> getReservations() {
+        return Collections.unmodifiableCollection(reservationsById.values());
+    }
+
+    /**
+     * Zamówienia sprzedane albo odtworzone na tym seansie (widok tylko do odczytu). Snapshot ich nie zapisuje –
+     * po restoreSnapshot są tu tylko zamówienia sprzedane później.
+     */
+    public Collection<TicketOrder> getOrders() {
+        return Collections.unmodifiableCollection(orders);
+    }
+
+    /**
+     * Stan miejsc spakowany po 2 bity na miejsce, w kolejności numerów porządkowych z Hall.
+     */
+    public byte[] exportSeatStates() {
+        return seatStates.pack();
+    }
+
+    /**
+     * Wczytuje stan ze snapshotu: spakowane statusy miejsc (jak z exportSeatStates), aktywne rezerwacje
+     * i przychód per strefa. Miejsca nie przechodzą przez CAS-y ani obserwatorów – dozwolone tylko
+     * dla seansu bez żadnego stanu.
+     */
+    public void restoreSnapshot(ByteBuffer packedStates, Collection<Reservation> reservations,
+                                Map<SeatZone, Money> revenueByZone) {
+        Objects.requireNonNull(packedStates, "packedStates cannot be null");
+        Objects.requireNonNull(reservations, "reservations cannot be null");
+        Objects.requireNonNull(revenueByZone, "revenueByZone cannot be null");
+        if (!reservationsById.isEmpty() || !seatStates.allFree()) {
+            throw new IllegalStateException("Screening already has seat state: " + screeningId);
+        }
+
+        seatStates.unpack(packedStates);
+        for (Reservation reservation : reservations) {
+            if (reservation.getScreening() != this) {
+                throw new IllegalArgumentException("Reservation belongs to another screening: " + reservation.getReservationId());
+            }
+            reservationsById.put(reservation.getReservationId(), reservation);
+        }
+        revenueByZone.forEach(seatStates.occupancy()::addRevenue);
+
+        SeatAllocator current = allocator;
+        if (current != null) {
+            current.fill();
+        }
+    }
+
+    // -------------------
+    // best available
+    // -------------------
+
+    /**
+     * Najlepszy blok count wolnych miejsc obok siebie w jednym rzędzie (bliżej środka sali = lepiej).
+     * zone == null oznacza dowolną strefę. Pusta lista, gdy takiego bloku nie ma.
+     */
+    public List<SeatId> findBestAvailable(int count, SeatZone zone) {
+        if (count <= 0) throw new IllegalArgumentException("count must be > 0");
+        return allocator().findBest(count, zone);
+    }
+
+    /**
+     * Znajduje najlepszy blok i od razu go rezerwuje. Jeśli ktoś zajmie miejsca między wyszukaniem
+     * a rezerwacją, szukamy ponownie (indeks jest już zaktualizowany), zamiast oddawać konflikt kupującemu.
+     */
+    public Reservation reserveBestAvailable(Buyer buyer, int count, SeatZone zone) {
+        Objects.requireNonNull(buyer, "buyer cannot be null");
+
+        for (int attempt = 0; attempt < MAX_ALLOCATION_ATTEMPTS; attempt++) {
+            List<SeatId> block = findBestAvailable(count, zone);
+            if (block.isEmpty()) {
+                break;
+            }
+            try {
+                return reserveSeats(new SeatReservationRequest(buyer, new LinkedHashSet<>(block)));
+            } catch (IllegalStateException conflict) {
+                // równoległa sprzedaż – próbujemy z kolejnym najlepszym blokiem
+            }
+        }
+        throw new IllegalStateException("No " + count + " adjacent free seats"
+                + (zone == null ? "" : " in zone " + zone) + " for " + this);
     }
 
     // -------------------
     // helpers
     // -------------------
 
-    private void ensureSeatExists(SeatId id) {
-        if (!seatStates.containsKey(id)) {
+    private SeatAllocator allocator() {
+        SeatAllocator current = allocator;
+        if (current == null) {
+            synchronized (this) {
+                current = allocator;
+                if (current == null) {
+                    current = new SeatAllocator(hall, seatStates);
+                    allocator = current; // najpierw publikacja, potem wczytanie stanu – patrz SeatAllocator.refresh
+                    current.fill();
+                }
+            }
+        }
+        return current;
+    }
+
+    private void refreshAllocator(int[] ordinals) {
+        SeatAllocator current = allocator;
+        if (current != null) {
+            current.refresh(ordinals);
+        }
+    }
+
+    /**
+     * Wpis do reservationsById idzie przed CAS-ami: wycofanie sprzedaży (SeatStateTable.sellAll) przywraca RESERVED
+     * tylko miejscu, które ma rezerwację w mapie, więc zajęte miejsce musi mieć ją tam już od pierwszego CAS-a.
+     */
+    private void holdSeats(Reservation reservation, int[] ordinals) {
+        reservationsById.put(reservation.getReservationId(), reservation);
+        try {
+            seatStates.reserveAll(ordinals);
+        } catch (RuntimeException ex) {
+            reservationsById.remove(reservation.getReservationId());
+            throw ex;
+        } finally {
+            refreshAllocator(ordinals);
+        }
+    }
+
+    /**
+     * Czy miejsce należy do którejś z aktywnych rezerwacji. Przegląda rezerwacje – wołane tylko przy wycofaniu sprzedaży.
+     */
+    private boolean isHeld(int ordinal) {
+        SeatId seatId = hall.seatAt(ordinal).getId();
+        for (Reservation reservation : reservationsById.values()) {
+            if (reservation.getSeatIds().contains(seatId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void registerReservation(Reservation reservation) {
+        for (ScreeningListener listener : listeners) {
+            try {
+                listener.onReserved(this, reservation);
+            } catch (RuntimeException ex) {
+                listenerFailed(ex);
+            }
+        }
+    }
+
+    /**
+     * Waluta sprawdzana przed registerOrder – po sprzedaży miejsc, ale zanim powstanie zamówienie,
+     * więc przy niezgodności miejsca da się jeszcze oddać.
+     */
+    private void claimCurrency(List<Ticket> tickets) {
+        ScreeningOccupancy occupancy = seatStates.occupancy();
+        for (Ticket ticket : tickets) {
+            occupancy.claimCurrency(ticket.getPrice());
+        }
+    }
+
+    private void rollbackSale(int[] ordinals, byte[] previous) {
+        seatStates.rollbackSale(ordinals, previous, this::isHeld);
+        refreshAllocator(ordinals);
+    }
+
+    /**
+     * @param previous statusy sprzedanych miejsc sprzed zakupu (z sellAll) – RESERVED oznacza, że zakup mógł
+     *                 objąć całą rezerwację
+     */
+    private void registerOrder(TicketOrder order, byte[] previous) {
+        List<Reservation> consumed = consumeReservations(order, previous);
+
+        ScreeningOccupancy occupancy = seatStates.occupancy();
+        for (Ticket ticket : order.getTickets()) {
+            occupancy.addRevenue(hall.getSeat(ticket.getSeatId()).getZone(), ticket.getPrice());
+        }
+
+        orders.add(order);
+        if (order.getBuyer() instanceof Customer customer) {
+            customer.addTickets(order.getTickets(), order.getCreatedAt());
+        }
+
+        for (ScreeningListener listener : listeners) {
+            try {
+                listener.onTicketsSold(this, order);
+            } catch (RuntimeException ex) {
+                listenerFailed(ex);
+            }
+        }
+        for (Reservation reservation : consumed) {
+            for (ScreeningListener listener : listeners) {
+                try {
+                    listener.onReservationConsumed(this, reservation, order);
+                } catch (RuntimeException ex) {
+                    listenerFailed(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Usuwa rezerwacje, których wszystkie miejsca kupiło to zamówienie – bez zdarzenia anulowania, więc
+     * wygaśnięcie (expireReservation) już ich nie znajdzie, a isHeld nie uzna sprzedanych miejsc za trzymane.
+     * Rezerwację objętą tylko częściowo zostawiamy: jej pozostałe miejsca nadal są trzymane.
+     * Przegląd rezerwacji tylko wtedy, gdy któreś miejsce było RESERVED – zwykły zakup wolnych miejsc nic nie płaci.
+     */
+    private List<Reservation> consumeReservations(TicketOrder order, byte[] previous) {
+        boolean anyReserved = false;
+        for (byte status : previous) {
+            if (status == SeatStatus.RESERVED.ordinal()) {
+                anyReserved = true;
+                break;
+            }
+        }
+        if (!anyReserved) {
+            return List.of();
+        }
+
+        Set<SeatId> sold = new HashSet<>();
+        for (Ticket ticket : order.getTickets()) {
+            sold.add(ticket.getSeatId());
+        }
+        List<Reservation> consumed = new ArrayList<>(1);
+        for (Reservation reservation : reservationsById.values()) {
+            if (sold.containsAll(reservation.getSeatIds())
+                    && reservationsById.remove(reservation.getReservationId(), reservation)) {
+                consumed.add(reservation);
+            }
+        }
+        return consumed;
+    }
+
+    private boolean releaseReservation(String reservationId) {
+        Reservation reservation = reservationsById.remove(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+
+        int[] ordinals = ordinalsOf(reservation.getSeatIds());
+        seatStates.release(ordinals);
+        refreshAllocator(ordinals);
+        for (ScreeningListener listener : listeners) {
+            try {
+                listener.onReservationCancelled(this, reservation);
+            } catch (RuntimeException ex) {
+                listenerFailed(ex);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wyjątek z errorHandler też nie może przerwać operacji – zmiana jest już widoczna dla innych wątków.
+     */
+    private void listenerFailed(RuntimeException ex) {
+        listenerFailures.increment();
+        try {
+            listenerErrorHandler.accept(ex);
+        } catch (RuntimeException ignored) {
+            // błąd już policzony w listenerFailures
+        }
+    }
+
+    private static void reportToCurrentThread(Throwable ex) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+    }
+
+    private int ordinalOf(SeatId id) {
+        int ordinal = id == null ? -1 : hall.ordinalOf(id);
+        if (ordinal < 0) {
             throw new NoSuchElementException("Seat not found in this screening: " + id);
         }
+        return ordinal;
+    }
+
+    /**
+     * Zamienia SeatId na numery porządkowe z Hall; rzuca wyjątek zanim cokolwiek zmienimy.
+     * Numery są posortowane – wszystkie żądania zajmują miejsca w tej samej kolejności (patrz SeatStateTable.reserveAll).
+     */
+    private int[] ordinalsOf(Collection<SeatId> seatIds) {
+        int[] ordinals = new int[seatIds.size()];
+        int i = 0;
+        for (SeatId id : seatIds) {
+            ordinals[i++] = ordinalOf(id);
+        }
+        Arrays.sort(ordinals);
+        return ordinals;
     }
 
     @Override
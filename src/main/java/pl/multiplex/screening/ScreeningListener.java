@@ -0,0 +1,32 @@
+package pl.multiplex.screening;
+
+import pl.multiplex.sales.Reservation;
+import pl.multiplex.sales.TicketOrder;
+
+/**
+ * Obserwator zmian w seansie (wzorzec Observer).
+ * Wywoływany synchronicznie, już po zmianie stanu miejsc – implementacje powinny być szybkie.
+ * Wyjątek obserwatora nie cofa zmiany i nie pomija kolejnych obserwatorów – trafia do
+ * {@link Screening#setListenerErrorHandler}, a operacja (np. reserveSeats) kończy się normalnie.
+ */
+public interface ScreeningListener {
+
+    default void onReserved(Screening screening, Reservation reservation) {
+    }
+
+    /**
+     * Rezerwacja anulowana ręcznie albo wygasła.
+     */
+    default void onReservationCancelled(Screening screening, Reservation reservation) {
+    }
+
+    default void onTicketsSold(Screening screening, TicketOrder order) {
+    }
+
+    /**
+     * Rezerwacja zamieniona w zakup – zamówienie objęło wszystkie jej miejsca. Wołane po onTicketsSold;
+     * to nie jest anulowanie (onReservationCancelled nie przychodzi), rezerwacji po prostu już nie ma.
+     */
+    default void onReservationConsumed(Screening screening, Reservation reservation, TicketOrder order) {
+    }
+}
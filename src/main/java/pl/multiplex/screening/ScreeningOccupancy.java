@@ -0,0 +1,239 @@
+package pl.multiplex.screening;
+
+import pl.multiplex.network.Hall;
+import pl.multiplex.shared.Money;
+import pl.multiplex.shared.SeatZone;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Liczniki zajętości i przychodu seansu (ogółem i per strefa), aktualizowane przy każdej zmianie statusu miejsca.
+ * <p>
+ * Odczyt to suma kilku komórek – bez blokad i bez przeglądania miejsc czy biletów
+ * (np. listing repertuaru z plakietką "ostatnie miejsca"). Poszczególne liczniki są dokładne,
+ * ale odczyt kilku z nich naraz w trakcie równoległej sprzedaży nie jest jednym spójnym zdjęciem.
+ * <p>
+ * Jak w LongAdder: na początku jedna komórka (liczniki i przychód w jednej tablicy), a gdy CAS na niej się nie uda
+ * (równoległa sprzedaż na gorącym seansie), dokładamy komórki – do liczby procesorów. Wątek pisze do komórki
+ * wybranej po id, więc równoległe zakupy nie walczą o jedną linię cache. Suma po komórkach jest dokładna,
+ * choć pojedyncza komórka może mieć ujemny licznik (miejsce zajęte w jednej, zwolnione w drugiej).
+ */
+public final class ScreeningOccupancy {
+
+    private static final SeatZone[] ZONES = SeatZone.values();
+    private static final int STATUSES = SeatStatus.values().length;
+
+    /**
+     * Układ komórki: PAD pustych slotów, [COUNTS + strefa * STATUSES + status] – liczba miejsc,
+     * [REVENUE + strefa] – przychód w groszach, i znowu PAD pustych slotów. Każda komórka to osobna tablica,
+     * która może leżeć tuż obok innej (albo obok jej nagłówka) – dopiero 128 B odstępu z obu stron
+     * trzyma używane sloty dwóch komórek w różnych liniach cache (także przy prefetchu sąsiedniej linii).
+     */
+    private static final int PAD = 16;
+    private static final int COUNTS = PAD;
+    private static final int REVENUE = COUNTS + ZONES.length * STATUSES;
+    private static final int CELL_LENGTH = REVENUE + ZONES.length + PAD;
+    private static final int MAX_CELLS = maxCells();
+
+    private final Hall hall;
+    private final int[] capacityByZone = new int[ZONES.length];
+
+    private volatile AtomicLongArray[] cells = {new AtomicLongArray(CELL_LENGTH)};
+    private final AtomicReference<String> currency = new AtomicReference<>();
+
+    ScreeningOccupancy(Hall hall) {
+        this.hall = hall;
+        for (int ordinal = 0; ordinal < hall.getSeatCount(); ordinal++) {
+            capacityByZone[hall.seatAt(ordinal).getZone().ordinal()]++;
+        }
+        for (int z = 0; z < ZONES.length; z++) {
+            cells[0].set(COUNTS + z * STATUSES + SeatStatus.FREE.ordinal(), capacityByZone[z]);
+        }
+    }
+
+    public int getCapacity() {
+        return hall.getSeatCount();
+    }
+
+    public int getCapacity(SeatZone zone) {
+        return capacityByZone[zone.ordinal()];
+    }
+
+    public int getFree() {
+        return total(SeatStatus.FREE);
+    }
+
+    public int getReserved() {
+        return total(SeatStatus.RESERVED);
+    }
+
+    public int getSold() {
+        return total(SeatStatus.SOLD);
+    }
+
+    public int getFree(SeatZone zone) {
+        return count(zone, SeatStatus.FREE);
+    }
+
+    public int getReserved(SeatZone zone) {
+        return count(zone, SeatStatus.RESERVED);
+    }
+
+    public int getSold(SeatZone zone) {
+        return count(zone, SeatStatus.SOLD);
+    }
+
+    public int count(SeatZone zone, SeatStatus status) {
+        return (int) sum(COUNTS + zone.ordinal() * STATUSES + status.ordinal());
+    }
+
+    /**
+     * Udział miejsc zajętych (zarezerwowanych albo sprzedanych) w całej sali, 0.0 – 1.0.
+     */
+    public double getOccupancyRate() {
+        return 1.0 - (double) getFree() / getCapacity();
+    }
+
+    /**
+     * true, gdy wolnych miejsc zostało nie więcej niż podany ułamek sali (np. 0.1 = "ostatnie miejsca").
+     */
+    public boolean isAlmostFull(double freeFraction) {
+        if (freeFraction < 0 || freeFraction > 1) throw new IllegalArgumentException("freeFraction must be in [0, 1]");
+        return getFree() <= getCapacity() * freeFraction;
+    }
+
+    public boolean isSoldOut() {
+        return getFree() == 0;
+    }
+
+    public long getRevenueMinor() {
+        long sum = 0;
+        for (int z = 0; z < ZONES.length; z++) {
+            sum += sum(REVENUE + z);
+        }
+        return sum;
+    }
+
+    public long getRevenueMinor(SeatZone zone) {
+        return sum(REVENUE + zone.ordinal());
+    }
+
+    /**
+     * Przychód brutto jako Money albo null, gdy nie sprzedano jeszcze żadnego biletu.
+     */
+    public Money getRevenue() {
+        String c = currency.get();
+        return c == null ? null : Money.ofMinor(getRevenueMinor(), c);
+    }
+
+    public Money getRevenue(SeatZone zone) {
+        String c = currency.get();
+        return c == null ? null : Money.ofMinor(getRevenueMinor(zone), c);
+    }
+
+    @Override
+    public String toString() {
+        return "ScreeningOccupancy{" + "free=" + getFree() + ", reserved=" + getReserved() + ", sold=" + getSold()
+                + ", revenue=" + getRevenue() + '}';
+    }
+
+    // -------------------
+    // updates (SeatStateTable / Screening)
+    // -------------------
+
+    void moved(int ordinal, byte from, byte to) {
+        int base = COUNTS + hall.seatAt(ordinal).getZone().ordinal() * STATUSES;
+        AtomicLongArray[] current = cells;
+        AtomicLongArray cell = current[cellIndex(current)];
+        add(current, cell, base + from, -1);
+        add(current, cell, base + to, 1);
+    }
+
+    /**
+     * Ustala walutę seansu przy pierwszej sprzedaży; kolejne ceny muszą być w tej samej walucie.
+     * Sprzedaż woła to przed registerOrder – po tym sprawdzeniu addRevenue nie może się już nie udać.
+     */
+    void claimCurrency(Money price) {
+        String c = price.currency();
+        if (!currency.compareAndSet(null, c) && !currency.get().equals(c)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency.get() + " vs " + c);
+        }
+    }
+
+    void addRevenue(SeatZone zone, Money price) {
+        claimCurrency(price);
+        AtomicLongArray[] current = cells;
+        add(current, current[cellIndex(current)], REVENUE + zone.ordinal(), price.toMinorUnits());
+    }
+
+    /**
+     * Przeliczenie od zera po wczytaniu stanu miejsc hurtem (snapshot). Tylko dla seansu, którego nikt
+     * jeszcze nie używa równolegle; przychód zostaje.
+     */
+    void recount(SeatStateTable states) {
+        long[] fresh = new long[REVENUE - COUNTS];
+        for (int ordinal = 0; ordinal < states.size(); ordinal++) {
+            fresh[hall.seatAt(ordinal).getZone().ordinal() * STATUSES + states.get(ordinal).ordinal()]++;
+        }
+        AtomicLongArray[] current = cells;
+        for (int i = 0; i < fresh.length; i++) {
+            current[0].set(COUNTS + i, fresh[i]);
+            for (int c = 1; c < current.length; c++) {
+                current[c].set(COUNTS + i, 0);
+            }
+        }
+    }
+
+    private int total(SeatStatus status) {
+        int sum = 0;
+        for (int z = 0; z < ZONES.length; z++) {
+            sum += (int) sum(COUNTS + z * STATUSES + status.ordinal());
+        }
+        return sum;
+    }
+
+    private long sum(int index) {
+        long sum = 0;
+        for (AtomicLongArray cell : cells) {
+            sum += cell.get(index);
+        }
+        return sum;
+    }
+
+    /**
+     * Jedna próba CAS-a; jej porażka to sygnał rywalizacji o komórkę – dodajemy wtedy bezwarunkowo i dokładamy komórki.
+     */
+    private void add(AtomicLongArray[] current, AtomicLongArray cell, int index, long delta) {
+        long value = cell.get(index);
+        if (!cell.compareAndSet(index, value, value + delta)) {
+            cell.getAndAdd(index, delta);
+            grow(current);
+        }
+    }
+
+    private void grow(AtomicLongArray[] seen) {
+        if (seen.length >= MAX_CELLS) return;
+        synchronized (this) {
+            if (cells != seen) return;
+            AtomicLongArray[] grown = Arrays.copyOf(seen, seen.length * 2);
+            for (int i = seen.length; i < grown.length; i++) {
+                grown[i] = new AtomicLongArray(CELL_LENGTH);
+            }
+            cells = grown;
+        }
+    }
+
+    private static int cellIndex(AtomicLongArray[] current) {
+        return (int) Thread.currentThread().threadId() & (current.length - 1);
+    }
+
+    /**
+     * Najmniejsza potęga dwójki &gt;= liczba procesorów, najwyżej 16.
+     */
+    private static int maxCells() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return cpus <= 1 ? 1 : Math.min(16, Integer.highestOneBit(cpus - 1) << 1);
+    }
+}
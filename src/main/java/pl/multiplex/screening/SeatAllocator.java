@@ -0,0 +1,270 @@
+package pl.multiplex.screening;
+
+import pl.multiplex.network.Hall;
+import pl.multiplex.network.HallRow;
+import pl.multiplex.shared.SeatId;
+import pl.multiplex.shared.SeatZone;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wyszukiwanie najlepszego bloku N wolnych miejsc obok siebie ("best available").
+ * <p>
+ * Dla każdego rzędu (i każdej strefy występującej w rzędzie, plus wariant "dowolna strefa") trzymamy drzewo
+ * przedziałowe z najdłuższą serią wolnych pozycji. Korzeń drzewa mówi w O(1), czy rząd w ogóle pomieści N osób,
+ * więc rzędy bez miejsca pomijamy bez przeglądania foteli. Drzewa aktualizujemy przyrostowo (O(log szerokości))
+ * po każdej zmianie statusu miejsca.
+ * <p>
+ * Ocena bloku: najpierw odległość rzędu od środka sali, potem odległość środka bloku od środka rzędu.
+ * Każdy rząd ma własną blokadę (na czas aktualizacji i odczytu drzewa) – nie ma blokady na cały seans.
+ */
+final class SeatAllocator {
+
+    private static final SeatZone[] ZONES = SeatZone.values();
+    private static final int ANY_ZONE = ZONES.length;
+
+    private final Hall hall;
+    private final SeatStateTable states;
+    private final List<HallRow> rows;
+
+    /**
+     * [rząd][strefa albo ANY_ZONE] – null, gdy w rzędzie nie ma miejsc danej strefy.
+     * Tablica runs[rząd] służy też jako blokada rzędu.
+     */
+    private final RowRuns[][] runs;
+
+    SeatAllocator(Hall hall, SeatStateTable states) {
+        this.hall = hall;
+        this.states = states;
+        this.rows = hall.getRows();
+        this.runs = new RowRuns[rows.size()][];
+
+        for (int r = 0; r < rows.size(); r++) {
+            HallRow row = rows.get(r);
+            RowRuns[] byZone = new RowRuns[ZONES.length + 1];
+            byZone[ANY_ZONE] = new RowRuns(row.width());
+            for (int pos = 0; pos < row.width(); pos++) {
+                int ordinal = row.ordinalAt(pos);
+                if (ordinal < 0) continue;
+                int zone = hall.seatAt(ordinal).getZone().ordinal();
+                if (byZone[zone] == null) byZone[zone] = new RowRuns(row.width());
+            }
+            runs[r] = byZone;
+        }
+    }
+
+    /**
+     * Wczytuje bieżący stan wszystkich miejsc. Wołane po opublikowaniu obiektu – zmiany równoległe
+     * i tak odświeżą swoje miejsca same (patrz refresh).
+     */
+    void fill() {
+        for (int r = 0; r < rows.size(); r++) {
+            HallRow row = rows.get(r);
+            synchronized (runs[r]) {
+                for (int pos = 0; pos < row.width(); pos++) {
+                    int ordinal = row.ordinalAt(pos);
+                    if (ordinal >= 0) refreshLeaf(r, ordinal);
+                }
+            }
+        }
+    }
+
+    /**
+     * Odświeża miejsca po zmianie statusu. Status czytamy ponownie pod blokadą rzędu,
+     * więc kolejność odświeżeń z różnych wątków nie ma znaczenia – wygrywa stan faktyczny.
+     */
+    void refresh(int[] ordinals) {
+        for (int ordinal : ordinals) {
+            int r = hall.rowIndexOf(ordinal);
+            synchronized (runs[r]) {
+                refreshLeaf(r, ordinal);
+            }
+        }
+    }
+
+    /**
+     * Odświeżenie po zmianie wielu miejsc naraz (zakup hurtowy). Rząd z wieloma zmianami wczytujemy
+     * od nowa liść po liściu i przeliczamy jego drzewo raz w całości, zamiast wspinać się do korzenia
+     * po każdym miejscu; rzędy z pojedynczymi zmianami odświeżamy jak w refresh.
+     */
+    void refreshAll(int[] ordinals) {
+        int[] changesByRow = new int[rows.size()];
+        for (int ordinal : ordinals) {
+            changesByRow[hall.rowIndexOf(ordinal)]++;
+        }
+
+        for (int ordinal : ordinals) {
+            int r = hall.rowIndexOf(ordinal);
+            if (!runs[r][ANY_ZONE].cheaperToRebuild(changesByRow[r])) {
+                synchronized (runs[r]) {
+                    refreshLeaf(r, ordinal);
+                }
+            }
+        }
+        for (int r = 0; r < rows.size(); r++) {
+            if (changesByRow[r] > 0 && runs[r][ANY_ZONE].cheaperToRebuild(changesByRow[r])) {
+                rebuildRow(r);
+            }
+        }
+    }
+
+    /**
+     * Najlepszy blok count wolnych miejsc obok siebie w strefie zone (null = dowolna strefa)
+     * albo pusta lista, gdy takiego bloku nie ma.
+     */
+    List<SeatId> findBest(int count, SeatZone zone) {
+        int z = zone == null ? ANY_ZONE : zone.ordinal();
+        int preferredRow = rows.size() / 2;
+
+        double bestScore = Double.MAX_VALUE;
+        List<SeatId> best = List.of();
+
+        for (int distance = 0; distance < rows.size() && distance < bestScore; distance++) {
+            for (int side = 0; side < 2; side++) {
+                int r = side == 0 ? preferredRow - distance : preferredRow + distance;
+                if (r < 0 || r >= rows.size() || (side == 1 && distance == 0)) continue;
+
+                RowRuns rowRuns = runs[r][z];
+                if (rowRuns == null) continue;
+
+                synchronized (runs[r]) {
+                    if (rowRuns.longestRun() < count) continue;
+
+                    int start = rowRuns.centredStart(count);
+                    double centre = start + (count - 1) / 2.0;
+                    double score = distance + Math.abs(centre - (rowRuns.width - 1) / 2.0) / rowRuns.width;
+                    if (score < bestScore) {
+                        bestScore = score;
+                        best = seatIds(rows.get(r), start, count);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void rebuildRow(int r) {
+        HallRow row = rows.get(r);
+        synchronized (runs[r]) {
+            for (int pos = 0; pos < row.width(); pos++) {
+                int ordinal = row.ordinalAt(pos);
+                if (ordinal < 0) continue;
+                boolean free = states.isFree(ordinal);
+                runs[r][hall.seatAt(ordinal).getZone().ordinal()].setLeaf(pos, free);
+                runs[r][ANY_ZONE].setLeaf(pos, free);
+            }
+            for (RowRuns rowRuns : runs[r]) {
+                if (rowRuns != null) rowRuns.rebuild();
+            }
+        }
+    }
+
+    private void refreshLeaf(int r, int ordinal) {
+        boolean free = states.isFree(ordinal);
+        int pos = hall.rowPositionOf(ordinal);
+        runs[r][hall.seatAt(ordinal).getZone().ordinal()].set(pos, free);
+        runs[r][ANY_ZONE].set(pos, free);
+    }
+
+    private List<SeatId> seatIds(HallRow row, int start, int count) {
+        List<SeatId> out = new ArrayList<>(count);
+        for (int pos = start; pos < start + count; pos++) {
+            out.add(hall.seatAt(row.ordinalAt(pos)).getId());
+        }
+        return out;
+    }
+
+    /**
+     * Drzewo przedziałowe nad pozycjami jednego rzędu. W każdym węźle: najdłuższa seria wolnych pozycji
+     * od lewej (pref), od prawej (suf) i w ogóle (best). Liście spoza rzędu i luki są zawsze zajęte.
+     */
+    private static final class RowRuns {
+
+        private final int width;
+        private final int size;
+        private final short[] pref;
+        private final short[] suf;
+        private final short[] best;
+
+        private RowRuns(int width) {
+            this.width = width;
+            int s = 1;
+            while (s < width) s <<= 1;
+            this.size = s;
+            this.pref = new short[2 * s];
+            this.suf = new short[2 * s];
+            this.best = new short[2 * s];
+        }
+
+        private void set(int pos, boolean free) {
+            if (!setLeaf(pos, free)) return;
+            for (int i = (size + pos) >> 1; i > 0; i >>= 1) {
+                pull(i);
+            }
+        }
+
+        /**
+         * Sam liść, bez węzłów nad nim – po serii setLeaf trzeba wywołać rebuild().
+         */
+        private boolean setLeaf(int pos, boolean free) {
+            int i = size + pos;
+            short v = (short) (free ? 1 : 0);
+            if (best[i] == v) return false;
+            pref[i] = suf[i] = best[i] = v;
+            return true;
+        }
+
+        private void rebuild() {
+            for (int i = size - 1; i > 0; i--) {
+                pull(i);
+            }
+        }
+
+        /**
+         * Czy przy tylu zmianach przeliczenie całego drzewa (size węzłów) wyjdzie taniej
+         * niż osobne ścieżki do korzenia (log2(size) węzłów na zmianę).
+         */
+        private boolean cheaperToRebuild(int changes) {
+            return (long) changes * Integer.numberOfTrailingZeros(size) > size;
+        }
+
+        private void pull(int i) {
+            int l = 2 * i;
+            int r = l + 1;
+            int half = size / Integer.highestOneBit(l); // długość przedziału dziecka
+            pref[i] = (short) (pref[l] == half ? half + pref[r] : pref[l]);
+            suf[i] = (short) (suf[r] == half ? half + suf[l] : suf[r]);
+            best[i] = (short) Math.max(Math.max(best[l], best[r]), suf[l] + pref[r]);
+        }
+
+        private int longestRun() {
+            return best[1];
+        }
+
+        /**
+         * Początek bloku count wolnych pozycji najbliższego środkowi rzędu (wołać tylko gdy longestRun() >= count).
+         */
+        private int centredStart(int count) {
+            double idealStart = (width - count) / 2.0;
+            int bestStart = -1;
+            double bestOffset = Double.MAX_VALUE;
+
+            int run = 0;
+            for (int pos = 0; pos < width; pos++) {
+                run = best[size + pos] == 1 ? run + 1 : 0;
+                if (run >= count) {
+                    int start = pos - count + 1;
+                    double offset = Math.abs(start - idealStart);
+                    if (offset < bestOffset) {
+                        bestOffset = offset;
+                        bestStart = start;
+                    } else if (start > idealStart) {
+                        break; // dalej będzie już tylko gorzej
+                    }
+                }
+            }
+            return bestStart;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package pl.multiplex.screening;
+
+import pl.multiplex.sales.Reservation;
+import pl.multiplex.sales.TicketOrder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strumień zmian planu sali dla subskrybentów (np. stron z żywym planem sali), per seans.
+ * <p>
+ * Sprzedaż nie robi nic per subskrybent: seans ma jednego obserwatora (kanał), który przy rezerwacji,
+ * anulowaniu czy zakupie tylko ustawia flagę i budzi wątek rozsyłający – przy pierwszej zmianie od ostatniego
+ * rozesłania, kolejne widzą ustawioną flagę i kończą na jednym odczycie. Wątek w tle liczy jedną deltę
+ * ({@link Screening#getSeatMapChanges(long)}) na rundę i podaje ten sam obiekt wszystkim nadążającym subskrybentom.
+ * <p>
+ * Rund jest najwyżej jedna na {@code minInterval} (domyślnie 50 ms) – przy gorącej premierze praca rozsyłania
+ * zależy od liczby subskrybentów i tempa odświeżania stron, nie od tempa sprzedaży.
+ * <p>
+ * Dostarczanie idzie przez {@code deliveryExecutor}, najwyżej jedno zadanie naraz na subskrybenta. Wolny odbiorca
+ * nie ma kolejki zdarzeń: pamiętamy tylko jego wersję, a gdy skończy, dostaje jedną scaloną deltę od tej wersji
+ * (każde miejsce raz, najnowszy status). Bufor to wspólny dziennik zmian seansu (ograniczony rozmiarem sali) –
+ * kto został dalej w tyle, dostaje cały plan sali (resync).
+ * <p>
+ * Subskrybent, który rzuci wyjątkiem, zostaje wypisany.
+ * <p>
+ * Użycie: {@code feed.start(); Subscription s = feed.subscribe(screening, page); ... s.close();}
+ */
+public class SeatChangeFeed implements AutoCloseable {
+
+    private final long minIntervalNanos;
+    private final Executor deliveryExecutor;
+
+    private final Map<Screening, Channel> channels = new ConcurrentHashMap<>();
+    private final Queue<Channel> signalled = new ConcurrentLinkedQueue<>();
+    private final LongAdder resyncCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+    private volatile Thread dispatcher;
+    private long nextRoundNanos; // tylko wątek rozsyłający
+
+    public SeatChangeFeed() {
+        this(Duration.ofMillis(50));
+    }
+
+    /**
+     * Każde dostarczenie na osobnym wątku wirtualnym – odbiorcy mogą blokować (np. zapis do gniazda).
+     */
+    public SeatChangeFeed(Duration minInterval) {
+        this(minInterval, Thread::startVirtualThread);
+    }
+
+    public SeatChangeFeed(Duration minInterval, Executor deliveryExecutor) {
+        Objects.requireNonNull(minInterval, "minInterval cannot be null");
+        if (minInterval.isNegative()) throw new IllegalArgumentException("minInterval must be >= 0");
+        this.minIntervalNanos = minInterval.toNanos();
+        this.deliveryExecutor = Objects.requireNonNull(deliveryExecutor, "deliveryExecutor cannot be null");
+    }
+
+    public synchronized void start() {
+        if (dispatcher != null) return;
+        Thread t = new Thread(this::dispatchLoop, "seat-change-feed");
+        t.setDaemon(true);
+        dispatcher = t;
+        t.start();
+    }
+
+    /**
+     * Zatrzymuje rozsyłanie. Subskrypcje zostają – po ponownym start() dostaną zaległe zmiany jedną deltą.
+     */
+    @Override
+    public synchronized void close() {
+        Thread t = dispatcher;
+        if (t != null) {
+            dispatcher = null;
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Zapisuje odbiorcę na zmiany seansu. Pierwsze wywołanie to {@link SeatChangeSubscriber#onSeatMap}
+     * z bieżącym planem sali (od razu, także przed start()), potem delty od jego wersji.
+     */
+    public synchronized Subscription subscribe(Screening screening, SeatChangeSubscriber subscriber) {
+        Objects.requireNonNull(screening, "screening cannot be null");
+        Objects.requireNonNull(subscriber, "subscriber cannot be null");
+
+        Channel channel = channels.computeIfAbsent(screening, Channel::new);
+        Subscription subscription = new Subscription(channel, subscriber);
+        channel.subscriptions.add(subscription);
+        subscription.offer();
+        return subscription;
+    }
+
+    public int getSubscriberCount(Screening screening) {
+        Channel channel = channels.get(screening);
+        return channel == null ? 0 : channel.subscriptions.size();
+    }
+
+    /**
+     * Ile razy subskrybent został tak daleko w tyle, że zamiast delty dostał cały plan sali.
+     */
+    public long getResyncCount() {
+        return resyncCount.sum();
+    }
+
+    /**
+     * Subskrybenci wypisani, bo rzucili wyjątkiem.
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        Channel channel = subscription.channel;
+        channel.subscriptions.remove(subscription);
+        if (channel.subscriptions.isEmpty() && channels.remove(channel.screening, channel)) {
+            channel.screening.removeListener(channel);
+        }
+    }
+
+    private void dispatchLoop() {
+        Thread self = Thread.currentThread();
+        while (dispatcher == self) {
+            long wait = nextRoundNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            if (signalled.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            nextRoundNanos = System.nanoTime() + minIntervalNanos;
+
+            // tylko kanały zgłoszone przed rundą – ten, który zgłosi się ponownie, poczeka na następną
+            boolean complete = true;
+            for (int n = signalled.size(); n > 0; n--) {
+                Channel channel = signalled.poll();
+                if (channel == null) break;
+                complete &= channel.dispatch();
+            }
+            if (!complete && minIntervalNanos == 0) {
+                Thread.yield(); // autor brakującego wpisu jeszcze nie skończył – dajmy mu procesor
+            }
+        }
+    }
+
+    // -------------------
+    // channel / subscription
+    // -------------------
+
+    /**
+     * Jedyny obserwator seansu po stronie strumienia, niezależnie od liczby subskrybentów.
+     */
+    private final class Channel implements ScreeningListener {
+
+        final Screening screening;
+        final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean pending = new AtomicBoolean();
+
+        volatile long dispatched;
+        volatile SeatMapDelta latest; // wspólna delta kończąca się na dispatched
+
+        Channel(Screening screening) {
+            this.screening = screening;
+            screening.addListener(this);
+            this.dispatched = screening.getSeatMap().getVersion(); // uruchamia też dziennik zmian seansu
+        }
+
+        @Override
+        public void onReserved(Screening screening, Reservation reservation) {
+            signal();
+        }
+
+        @Override
+        public void onReservationCancelled(Screening screening, Reservation reservation) {
+            signal();
+        }
+
+        @Override
+        public void onTicketsSold(Screening screening, TicketOrder order) {
+            signal();
+        }
+
+        /**
+         * Jedyny koszt po stronie sprzedaży: odczyt flagi, a przy pierwszej zmianie w rundzie – CAS, wpis do kolejki i unpark.
+         */
+        void signal() {
+            if (!pending.get() && pending.compareAndSet(false, true)) {
+                signalled.add(this);
+                Thread t = dispatcher;
+                if (t != null) LockSupport.unpark(t);
+            }
+        }
+
+        /**
+         * Jedna runda: delta od ostatnio rozesłanej wersji i zaproszenie dla subskrybentów, którzy są wolni.
+         * Zwraca false, gdy wpis zmiany nie był jeszcze zapisany – kanał wraca wtedy do kolejki.
+         */
+        synchronized boolean dispatch() {
+            pending.set(false); // przed odczytem wersji – późniejsza zmiana da nowy sygnał
+            long from = dispatched;
+            long current = screening.getSeatMapVersion();
+            if (current == from) {
+                return true;
+            }
+            SeatMapDelta delta = screening.getSeatMapChanges(from);
+            if (delta.getVersion() > from) {
+                latest = delta;
+                dispatched = delta.getVersion();
+                for (Subscription subscription : subscriptions) {
+                    subscription.offer();
+                }
+            }
+            if (delta.getVersion() < current) {
+                signal();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    public final class Subscription implements AutoCloseable {
+
+        private final Channel channel;
+        private final SeatChangeSubscriber subscriber;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private volatile long version = -1; // zmieniana tylko przez zadanie dostarczające
+        private volatile boolean closed;
+
+        private Subscription(Channel channel, SeatChangeSubscriber subscriber) {
+            this.channel = channel;
+            this.subscriber = subscriber;
+        }
+
+        public Screening getScreening() {
+            return channel.screening;
+        }
+
+        /**
+         * Wersja planu sali, którą odbiorca już dostał (-1 przed pierwszym planem).
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            unsubscribe(this);
+        }
+
+        /**
+         * Zleca dostarczenie, chyba że poprzednie jeszcze trwa – wtedy ono samo dogoni bieżącą wersję.
+         */
+        void offer() {
+            if (!closed && !scheduled.get() && scheduled.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    while (!closed && deliverNext()) {
+                        // dopóki odbiorca jest w tyle
+                    }
+                } catch (RuntimeException ex) {
+                    failedCount.increment();
+                    close();
+                }
+                scheduled.set(false);
+            } while (!closed && version < channel.dispatched && scheduled.compareAndSet(false, true));
+        }
+
+        private boolean deliverNext() {
+            long current = version;
+            if (current >= channel.dispatched) {
+                return false;
+            }
+
+            SeatMapDelta delta = null;
+            if (current >= 0) {
+                delta = channel.latest;
+                if (delta == null || delta.getFromVersion() != current) {
+                    delta = channel.screening.getSeatMapChanges(current); // odbiorca w tyle – jego własna, scalona delta
+                }
+            }
+
+            if (delta == null || delta.isResyncRequired()) {
+                if (delta != null) resyncCount.increment();
+                SeatMap seatMap = channel.screening.getSeatMap();
+                subscriber.onSeatMap(channel.screening, seatMap);
+                version = seatMap.getVersion();
+                return true;
+            }
+            if (delta.getVersion() == current) {
+                return false;
+            }
+            subscriber.onSeatChanges(channel.screening, delta);
+            version = delta.getVersion();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package pl.multiplex.screening;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Pierścień ostatnich zmian miejsc seansu: pozycja (wersja % pojemność) trzyma {@code wersja << 24 | ordinal}.
+ * <p>
+ * Zapis to jedno set() bez blokad. Czytelnik przechodzi po wersjach (od, do] i po zapisanej wersji rozpoznaje,
+ * czy wpis jest właściwy, nadpisany (klient za daleko w tyle → resync) czy jeszcze niezapisany
+ * (wątek zwiększył wersję, ale nie zdążył wpisać – delta kończy się przed nim i dostanie go następnym razem).
+ * <p>
+ * Dziennik powstaje dopiero przy pierwszym pytaniu o plan sali; zmiany o wersjach &lt;= start nie są w nim zapisane.
+ */
+final class SeatChangeLog {
+
+    private static final int ORDINAL_BITS = 24;
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+    private static final long NOT_STARTED = Long.MAX_VALUE;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+    private volatile long start = NOT_STARTED;
+
+    SeatChangeLog(int seatCount) {
+        if (seatCount > ORDINAL_MASK) throw new IllegalArgumentException("Too many seats for change log: " + seatCount);
+        int capacity = Integer.highestOneBit(Math.max(256, seatCount * 2) - 1) << 1;
+        this.entries = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Od tej wersji (wyłącznie) dziennik jest kompletny. Ustawiane po opublikowaniu dziennika w SeatStateTable.
+     */
+    void start(long version) {
+        this.start = version;
+    }
+
+    void record(long version, int ordinal) {
+        entries.set((int) (version & mask), version << ORDINAL_BITS | ordinal);
+    }
+
+    /**
+     * Zmiany w wersjach (since, upTo] z aktualnymi statusami miejsc, albo null, gdy dziennik nie obejmuje since.
+     * Delta może kończyć się przed upTo – na pierwszej wersji, której wpis nie jest jeszcze zapisany.
+     */
+    SeatMapDelta changesSince(long since, long upTo, SeatStateTable states) {
+        if (since < start || upTo - since > entries.length()) {
+            return null;
+        }
+
+        int[] ordinals = new int[(int) (upTo - since)];
+        int n = 0;
+        long complete = since;
+        for (long v = since + 1; v <= upTo; v++) {
+            long entry = entries.get((int) (v & mask));
+            long written = entry >>> ORDINAL_BITS;
+            if (written > v) {
+                return null; // nadpisany – czytelnik za daleko w tyle
+            }
+            if (written < v) {
+                break; // jeszcze niezapisany
+            }
+            ordinals[n++] = (int) (entry & ORDINAL_MASK);
+            complete = v;
+        }
+
+        // każde miejsce raz, z bieżącym statusem (odczytanym po wpisach, więc nie starszym niż complete)
+        Arrays.sort(ordinals, 0, n);
+        int distinct = 0;
+        int previous = -1;
+        for (int i = 0; i < n; i++) {
+            int ordinal = ordinals[i];
+            if (ordinal != previous) {
+                ordinals[distinct++] = ordinal << 2 | states.statusCode(ordinal);
+                previous = ordinal;
+            }
+        }
+        return SeatMapDelta.of(since, complete, Arrays.copyOf(ordinals, distinct));
+    }
+}
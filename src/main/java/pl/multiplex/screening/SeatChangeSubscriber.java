@@ -0,0 +1,18 @@
+package pl.multiplex.screening;
+
+/**
+ * Odbiorca zmian planu sali z {@link SeatChangeFeed}.
+ * <p>
+ * Dla jednego subskrybenta wywołania są sekwencyjne (nigdy dwa naraz) i w kolejności wersji.
+ * Wolny odbiorca nie blokuje innych ani sprzedaży – zmiany, które przyszły w trakcie, dostanie następnym razem
+ * w jednej delcie (najnowszy status miejsca wygrywa).
+ */
+public interface SeatChangeSubscriber {
+
+    /**
+     * Cały plan sali: na początku subskrypcji i gdy odbiorca został za daleko w tyle, żeby uzupełnić go deltą.
+     */
+    void onSeatMap(Screening screening, SeatMap seatMap);
+
+    void onSeatChanges(Screening screening, SeatMapDelta delta);
+}
@@ -0,0 +1,75 @@
+package pl.multiplex.screening;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Niemutowalny plan sali seansu w danej wersji – gotowy do wysłania klientom.
+ * <p>
+ * Postać binarna (big-endian): wersja (long), liczba miejsc (int), potem statusy po 2 bity na miejsce
+ * w kolejności numerów porządkowych z Hall (4 miejsca na bajt, najmłodsze bity = pierwsze miejsce),
+ * jak w {@link Screening#exportSeatStates()}. Sala na 1000 miejsc to 262 bajty.
+ * <p>
+ * Plan jest budowany raz na wersję i współdzielony przez wszystkich pytających ({@link Screening#getSeatMap()}).
+ * Stan miejsc jest co najmniej tak świeży jak wersja – zmiany w trakcie budowania mogą już być widoczne,
+ * a i tak przyjdą ponownie w delcie od tej wersji (klient nadpisuje status, więc powtórka jest nieszkodliwa).
+ */
+public final class SeatMap {
+
+    static final int HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private static final SeatStatus[] STATUSES = SeatStatus.values();
+
+    private final long version;
+    private final int seatCount;
+    private final ByteBuffer encoded;
+
+    SeatMap(long version, int seatCount, ByteBuffer encoded) {
+        this.version = version;
+        this.seatCount = seatCount;
+        this.encoded = encoded.asReadOnlyBuffer().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    public SeatStatus getStatus(int ordinal) {
+        if (ordinal < 0 || ordinal >= seatCount) {
+            throw new IndexOutOfBoundsException("ordinal " + ordinal + " out of [0, " + seatCount + ")");
+        }
+        int packed = encoded.get(HEADER_BYTES + (ordinal >>> 2));
+        return STATUSES[(packed >>> ((ordinal & 3) << 1)) & 3];
+    }
+
+    /**
+     * Rozmiar postaci binarnej w bajtach (nagłówek + bitmapa).
+     */
+    public int encodedSize() {
+        return encoded.capacity();
+    }
+
+    /**
+     * Widok tylko do odczytu na postać binarną – bez kopiowania (np. do zapisu prosto do kanału).
+     * Każde wywołanie daje niezależną pozycję i limit.
+     */
+    public ByteBuffer asByteBuffer() {
+        return encoded.duplicate().clear();
+    }
+
+    /**
+     * Dopisuje postać binarną do bufora (np. wyjściowego bufora połączenia) jednym kopiowaniem blokowym.
+     */
+    public void writeTo(ByteBuffer out) {
+        out.put(asByteBuffer());
+    }
+
+    @Override
+    public String toString() {
+        return "SeatMap{version=" + version + ", seats=" + seatCount + ", bytes=" + encodedSize() + '}';
+    }
+}
@@ -0,0 +1,87 @@
+package pl.multiplex.screening;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Zmiany planu sali od wersji klienta: lista (numer porządkowy miejsca, aktualny status) i nowa wersja.
+ * <p>
+ * Postać binarna (big-endian): wersja od (long), wersja do (long), liczba zmian (int), potem po 4 bajty na zmianę:
+ * {@code ordinal << 2 | status}. Każde miejsce występuje najwyżej raz, z najnowszym statusem.
+ * <p>
+ * Gdy dziennik zmian seansu nie sięga już wersji klienta (dawno nie pytał albo plan dopiero zaczęto śledzić),
+ * {@link #isResyncRequired()} zwraca true i klient powinien pobrać cały {@link SeatMap}.
+ */
+public final class SeatMapDelta {
+
+    static final int HEADER_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    private static final SeatStatus[] STATUSES = SeatStatus.values();
+    private static final int[] NO_CHANGES = new int[0];
+
+    private final long fromVersion;
+    private final long version;
+    private final boolean resyncRequired;
+    private final int[] changes;
+
+    private SeatMapDelta(long fromVersion, long version, boolean resyncRequired, int[] changes) {
+        this.fromVersion = fromVersion;
+        this.version = version;
+        this.resyncRequired = resyncRequired;
+        this.changes = changes;
+    }
+
+    static SeatMapDelta of(long fromVersion, long version, int[] changes) {
+        return new SeatMapDelta(fromVersion, version, false, changes);
+    }
+
+    static SeatMapDelta resync(long fromVersion, long currentVersion) {
+        return new SeatMapDelta(fromVersion, currentVersion, true, NO_CHANGES);
+    }
+
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * Wersja, którą klient ma po zastosowaniu zmian (przy resync – bieżąca wersja seansu).
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isResyncRequired() {
+        return resyncRequired;
+    }
+
+    public int getChangeCount() {
+        return changes.length;
+    }
+
+    public int getOrdinal(int index) {
+        return changes[index] >>> 2;
+    }
+
+    public SeatStatus getStatus(int index) {
+        return STATUSES[changes[index] & 3];
+    }
+
+    public int encodedSize() {
+        return HEADER_BYTES + changes.length * Integer.BYTES;
+    }
+
+    /**
+     * Zapisuje postać binarną prosto do bufora, bez pośredniej tablicy.
+     */
+    public void writeTo(ByteBuffer out) {
+        out.putLong(fromVersion).putLong(version).putInt(changes.length);
+        for (int change : changes) {
+            out.putInt(change);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SeatMapDelta{" + fromVersion + " -> " + version
+                + (resyncRequired ? ", resync" : ", changes=" + changes.length) + '}';
+    }
+}
@@ -0,0 +1,291 @@
+package pl.multiplex.screening;
+
+import pl.multiplex.network.Hall;
+import pl.multiplex.shared.SeatId;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * Współbieżny stan miejsc jednego seansu.
+ * Stan trzymamy w tablicy bajtów indeksowanej numerem porządkowym miejsca z Hall (1 bajt na miejsce
+ * zamiast wpisu w mapie). Każde miejsce zmienia status osobnym CAS-em, a operacje na wielu miejscach są
+ * "wszystko albo nic": przy konflikcie wycofujemy miejsca zajęte wcześniej w tej samej operacji.
+ * Dzięki temu nie ma jednej globalnej blokady na seans – równoległe zakupy różnych miejsc sobie nie przeszkadzają.
+ * <p>
+ * Plan sali dla klientów (SeatMap) budujemy raz na wersję, a zmiany od wersji klienta czytamy z dziennika
+ * (SeatChangeLog), który powstaje dopiero przy pierwszym pytaniu o plan. Od tej chwili każda udana zmiana statusu
+ * (także wycofanie) dostaje kolejny numer wersji. Licznika wersji nie da się rozłożyć na komórki – porządkuje
+ * dziennik – więc płacą za niego tylko seanse, o które ktoś pyta; pozostałe nie mają żadnej wspólnej linii cache
+ * poza licznikami zajętości (ScreeningOccupancy, rozłożone na komórki).
+ */
+final class SeatStateTable {
+
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private static final byte FREE = (byte) SeatStatus.FREE.ordinal();
+    private static final byte RESERVED = (byte) SeatStatus.RESERVED.ordinal();
+    private static final byte SOLD = (byte) SeatStatus.SOLD.ordinal();
+
+    private static final SeatStatus[] STATUSES = SeatStatus.values();
+
+    private final Hall hall;
+    private final byte[] states;
+    private final ScreeningOccupancy occupancy;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile SeatChangeLog changeLog;
+    private volatile SeatMap seatMap;
+
+    SeatStateTable(Hall hall) {
+        this.hall = hall;
+        this.states = new byte[hall.getSeatCount()]; // 0 == FREE
+        this.occupancy = new ScreeningOccupancy(hall);
+    }
+
+    /**
+     * Liczniki aktualizowane przy każdym udanym CAS-ie (także przy wycofaniu), więc zgadzają się
+     * ze stanem miejsc niezależnie od przeplotu wątków.
+     */
+    ScreeningOccupancy occupancy() {
+        return occupancy;
+    }
+
+    SeatStatus get(int ordinal) {
+        return STATUSES[load(ordinal)];
+    }
+
+    boolean isFree(int ordinal) {
+        return load(ordinal) == FREE;
+    }
+
+    int size() {
+        return states.length;
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    int statusCode(int ordinal) {
+        return load(ordinal);
+    }
+
+    /**
+     * Plan sali w bieżącej wersji – ten sam obiekt dla wszystkich pytających, dopóki nic się nie zmieni.
+     * Wersję czytamy przed stanem miejsc: zmiana z numerem &lt;= v zrobiła już swój CAS, więc plan jej nie pominie.
+     */
+    SeatMap seatMap() {
+        changeLog();
+        long v = version.get();
+        SeatMap cached = seatMap;
+        if (cached != null && cached.getVersion() == v) {
+            return cached;
+        }
+        ByteBuffer encoded = ByteBuffer.allocate(SeatMap.HEADER_BYTES + packedSize(states.length));
+        encoded.putLong(v).putInt(states.length);
+        packInto(encoded);
+        SeatMap built = new SeatMap(v, states.length, encoded.flip());
+        seatMap = built;
+        return built;
+    }
+
+    SeatMapDelta changesSince(long since) {
+        SeatChangeLog log = changeLog();
+        long current = version.get();
+        if (since < 0 || since > current) {
+            throw new IllegalArgumentException("Unknown seat map version: " + since + " (current " + current + ")");
+        }
+        if (since == current) {
+            return SeatMapDelta.of(since, current, new int[0]);
+        }
+        SeatMapDelta delta = log.changesSince(since, current, this);
+        return delta != null ? delta : SeatMapDelta.resync(since, current);
+    }
+
+    Set<SeatId> freeSeats() {
+        Set<SeatId> free = new LinkedHashSet<>();
+        for (int i = 0; i < states.length; i++) {
+            if (load(i) == FREE) free.add(hall.seatAt(i).getId());
+        }
+        return Collections.unmodifiableSet(free);
+    }
+
+    /**
+     * FREE -> RESERVED dla wszystkich miejsc albo dla żadnego.
+     * <p>
+     * Numery muszą być rosnące (Screening.ordinalsOf): dwa żądania o te same miejsca spotykają się na pierwszym
+     * wspólnym miejscu i jedno z nich wygrywa całość – nie ma przeplotu, w którym każde zajmie część i oba przegrają.
+     * Zostaje jeden przypadek bez odpowiednika sekwencyjnego: żądanie przegrywa z trzymaniem, które za chwilę
+     * zostanie wycofane (zwycięzca potknął się dalej o trzecie żądanie). Wtedy wszyscy dostają "Seat is not free",
+     * a miejsca wracają do FREE – klient ponawia jak przy każdym konflikcie.
+     */
+    void reserveAll(int[] ordinals) {
+        for (int i = 0; i < ordinals.length; i++) {
+            int ordinal = ordinals[i];
+            if (!cas(ordinal, FREE, RESERVED)) {
+                for (int j = 0; j < i; j++) {
+                    cas(ordinals[j], RESERVED, FREE);
+                }
+                throw new IllegalStateException("Seat is not free: " + hall.seatAt(ordinal).getId()
+                        + " (status=" + get(ordinal) + ")");
+            }
+        }
+    }
+
+    /**
+     * FREE/RESERVED -> SOLD dla wszystkich miejsc albo dla żadnego.
+     * Przy wycofaniu każde miejsce wraca do statusu, z którego je sprzedaliśmy – RESERVED tylko wtedy,
+     * gdy {@code held} potwierdzi, że rezerwacja tego miejsca nadal istnieje.
+     * Zwraca poprzednie statusy – dla rollbackSale, gdy zamówienia nie da się już zbudować.
+     */
+    byte[] sellAll(int[] ordinals, IntPredicate held) {
+        byte[] previous = new byte[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            int ordinal = ordinals[i];
+            while (true) {
+                byte current = load(ordinal);
+                if (current == SOLD) {
+                    for (int j = 0; j < i; j++) {
+                        rollbackSale(ordinals[j], previous[j], held);
+                    }
+                    throw new IllegalStateException("Seat already sold: " + hall.seatAt(ordinal).getId());
+                }
+                if (cas(ordinal, current, SOLD)) {
+                    previous[i] = current;
+                    break;
+                }
+                // ktoś w międzyczasie zmienił status (np. FREE -> RESERVED) – czytamy jeszcze raz
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Wycofuje udane sellAll (np. zła waluta ceny albo błąd wyceny) – te same zasady co wycofanie w trakcie sellAll.
+     */
+    void rollbackSale(int[] ordinals, byte[] previous, IntPredicate held) {
+        for (int i = 0; i < ordinals.length; i++) {
+            rollbackSale(ordinals[i], previous[i], held);
+        }
+    }
+
+    /**
+     * SOLD -> poprzedni status. Rezerwacja mogła zostać anulowana, gdy miejsce było SOLD (jej release nie zadziałał),
+     * więc po przywróceniu RESERVED sprawdzamy właściciela i bez niego zwalniamy miejsce.
+     * Anulowanie najpierw usuwa rezerwację, potem robi CAS – w każdym przeplocie miejsce nie zostaje RESERVED bez rezerwacji.
+     */
+    private void rollbackSale(int ordinal, byte previous, IntPredicate held) {
+        if (cas(ordinal, SOLD, previous) && previous == RESERVED && !held.test(ordinal)) {
+            cas(ordinal, RESERVED, FREE);
+        }
+    }
+
+    /**
+     * RESERVED -> FREE; miejsca sprzedane w międzyczasie zostają SOLD.
+     */
+    void release(int[] ordinals) {
+        for (int ordinal : ordinals) {
+            cas(ordinal, RESERVED, FREE);
+        }
+    }
+
+    /**
+     * Stan wszystkich miejsc spakowany po 2 bity na miejsce (4 miejsca na bajt, w kolejności numerów porządkowych).
+     */
+    byte[] pack() {
+        byte[] packed = new byte[packedSize(states.length)];
+        packInto(ByteBuffer.wrap(packed));
+        return packed;
+    }
+
+    /**
+     * Jak pack(), ale prosto do bufora (od jego pozycji) – bez pośredniej tablicy.
+     */
+    void packInto(ByteBuffer out) {
+        int i = 0;
+        for (; i + 4 <= states.length; i += 4) {
+            out.put((byte) (load(i) | load(i + 1) << 2 | load(i + 2) << 4 | load(i + 3) << 6));
+        }
+        if (i < states.length) {
+            int last = 0;
+            for (int shift = 0; i < states.length; i++, shift += 2) {
+                last |= load(i) << shift;
+            }
+            out.put((byte) last);
+        }
+    }
+
+    /**
+     * Wczytuje stan spakowany przez pack(). Tylko dla tabeli, której nikt jeszcze nie używa równolegle.
+     */
+    void unpack(ByteBuffer packed) {
+        if (packed.remaining() != packedSize(states.length)) {
+            throw new IllegalArgumentException("Packed seat states have " + packed.remaining()
+                    + " bytes, expected " + packedSize(states.length));
+        }
+        int base = packed.position();
+        for (int i = 0; i < states.length; i++) {
+            int status = (packed.get(base + (i >>> 2)) >>> ((i & 3) << 1)) & 3;
+            if (status > SOLD) throw new IllegalArgumentException("Invalid packed seat status: " + status);
+            states[i] = (byte) status;
+        }
+        VarHandle.releaseFence();
+        occupancy.recount(this);
+        // stan podmieniony poza CAS-ami – dawne wersje klientów nie dają się już uzupełnić deltą
+        changeLog = null;
+        seatMap = null; // bez dziennika wersja stoi – zbuforowany plan mógłby wyglądać na aktualny
+        version.incrementAndGet();
+    }
+
+    boolean allFree() {
+        for (int i = 0; i < states.length; i++) {
+            if (load(i) != FREE) return false;
+        }
+        return true;
+    }
+
+    static int packedSize(int seatCount) {
+        return (seatCount + 3) >>> 2;
+    }
+
+    private boolean cas(int ordinal, byte from, byte to) {
+        if (!STATES.compareAndSet(states, ordinal, from, to)) {
+            return false;
+        }
+        occupancy.moved(ordinal, from, to);
+        SeatChangeLog log = changeLog;
+        if (log != null) {
+            log.record(version.incrementAndGet(), ordinal);
+        }
+        return true;
+    }
+
+    /**
+     * Dziennik zmian, tworzony przy pierwszym użyciu. Start ustawiamy po opublikowaniu dziennika: zmiana o wersji
+     * wyższej niż start zwiększyła licznik po tym odczycie, więc widzi już dziennik i się w nim zapisze.
+     */
+    private SeatChangeLog changeLog() {
+        SeatChangeLog log = changeLog;
+        if (log != null) {
+            return log;
+        }
+        synchronized (this) {
+            log = changeLog;
+            if (log == null) {
+                log = new SeatChangeLog(states.length);
+                changeLog = log;
+                log.start(version.get());
+            }
+            return log;
+        }
+    }
+
+    private byte load(int ordinal) {
+        return (byte) STATES.getVolatile(states, ordinal);
+    }
+}
@@ -0,0 +1,46 @@
+package pl.multiplex.shared;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kod waluty trzymany w jednej instancji na kod (jak enum, ale otwarty na nowe waluty).
+ * Dzięki temu porównanie walut w MinorMoney to porównanie referencji, bez equals/trim/toUpperCase.
+ */
+public final class CurrencyCode {
+
+    private static final Map<String, CurrencyCode> CODES = new ConcurrentHashMap<>();
+
+    public static final CurrencyCode PLN = of("PLN");
+
+    private final String code;
+
+    private CurrencyCode(String code) {
+        this.code = code;
+    }
+
+    /**
+     * Mapa ma klucze tylko po normalizacji (jeden wpis na walutę). Szybka ścieżka trafia dla kodów już znormalizowanych –
+     * tak jak Money.currency(); pozostałe przechodzą przez trim/toUpperCase i nie zostawiają po sobie wpisu.
+     */
+    public static CurrencyCode of(String code) {
+        CurrencyCode cached = CODES.get(Objects.requireNonNull(code, "currency cannot be null"));
+        if (cached != null) return cached;
+
+        String normalized = code.trim().toUpperCase();
+        if (normalized.isBlank()) {
+            throw new IllegalArgumentException("currency cannot be blank");
+        }
+        return CODES.computeIfAbsent(normalized, CurrencyCode::new);
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
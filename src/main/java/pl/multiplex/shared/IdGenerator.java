@@ -0,0 +1,17 @@
+package pl.multiplex.shared;
+
+/**
+ * Źródło unikalnych identyfikatorów (bilety, zamówienia, rezerwacje).
+ * Domyślna implementacja: {@link SnowflakeIdGenerator}; globalna instancja w {@link Ids}.
+ */
+public interface IdGenerator {
+
+    long nextId();
+
+    /**
+     * Krótka postać tekstowa (13 znaków, sortuje się tak jak liczby).
+     */
+    default String nextIdString() {
+        return Ids.format(nextId());
+    }
+}
@@ -0,0 +1,77 @@
+package pl.multiplex.shared;
+
+import java.util.Objects;
+
+/**
+ * Globalny generator identyfikatorów + zamiana na krótki tekst (Crockford base32, 13 znaków).
+ * <p>
+ * Numer węzła bierzemy z {@code -Dmultiplex.nodeId=...} albo zmiennej środowiskowej {@code MULTIPLEX_NODE_ID}
+ * (domyślnie 0). Generator można podmienić przez {@link #use(IdGenerator)}.
+ */
+public final class Ids {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = 13; // 13 * 5 bitów >= 64 bity
+
+    private static volatile IdGenerator generator = new SnowflakeIdGenerator(configuredNodeId());
+
+    private Ids() {
+    }
+
+    public static IdGenerator generator() {
+        return generator;
+    }
+
+    public static void use(IdGenerator newGenerator) {
+        generator = Objects.requireNonNull(newGenerator, "generator cannot be null");
+    }
+
+    public static String next() {
+        return format(generator.nextId());
+    }
+
+    /**
+     * Postać tekstowa o stałej długości – kolejność leksykograficzna == kolejność liczb (bez znaku).
+     */
+    public static String format(long id) {
+        char[] out = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            out[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(out);
+    }
+
+    public static long parse(String text) {
+        Objects.requireNonNull(text, "text cannot be null");
+        if (text.length() != LENGTH) {
+            throw new IllegalArgumentException("Invalid id: " + text);
+        }
+        long id = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = decode(Character.toUpperCase(text.charAt(i)));
+            if (digit < 0 || (i == 0 && digit > 15)) {
+                throw new IllegalArgumentException("Invalid id: " + text);
+            }
+            id = (id << 5) | digit;
+        }
+        return id;
+    }
+
+    private static int decode(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private static int configuredNodeId() {
+        String value = System.getProperty("multiplex.nodeId", System.getenv("MULTIPLEX_NODE_ID"));
+        if (value == null || value.isBlank()) return 0;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid multiplex.nodeId: " + value, ex);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package pl.multiplex.shared;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Szybki wariant Money: kwota w groszach (long) + internowany kod waluty.
+ * Arytmetyka to zwykłe operacje na long (z kontrolą przepełnienia), bez BigDecimal i bez skalowania.
+ * Do konwersji w obie strony służą {@link #of(Money)} i {@link #toMoney()}.
+ */
+public record MinorMoney(long minorUnits, CurrencyCode currency) {
+
+    private static final int SCALE = 2;
+
+    public MinorMoney {
+        Objects.requireNonNull(currency, "currency cannot be null");
+        if (minorUnits < 0) {
+            throw new IllegalArgumentException("amount cannot be negative");
+        }
+    }
+
+    public static MinorMoney of(Money money) {
+        Objects.requireNonNull(money, "money cannot be null");
+        return new MinorMoney(money.toMinorUnits(), CurrencyCode.of(money.currency()));
+    }
+
+    public static MinorMoney zero(CurrencyCode currency) {
+        return new MinorMoney(0, currency);
+    }
+
+    public MinorMoney plus(MinorMoney other) {
+        ensureSameCurrency(other);
+        return new MinorMoney(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public MinorMoney times(int multiplier) {
+        if (multiplier < 0) throw new IllegalArgumentException("multiplier cannot be negative");
+        return new MinorMoney(Math.multiplyExact(minorUnits, multiplier), currency);
+    }
+
+    public Money toMoney() {
+        return new Money(BigDecimal.valueOf(minorUnits, SCALE), currency.getCode());
+    }
+
+    private void ensureSameCurrency(MinorMoney other) {
+        Objects.requireNonNull(other, "other cannot be null");
+        if (currency != other.currency) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return BigDecimal.valueOf(minorUnits, SCALE) + " " + currency;
+    }
+}
@@ -29,6 +29,24 @@ public record Money(BigDecimal amount, String currency) {
         return new Money(BigDecimal.valueOf(value), "PLN");
     }
 
+    /**
+     * Kwota w groszach – Money ma zawsze skalę 2. Patrz MinorMoney / MoneyAccumulator.
+     */
+    public static Money ofMinor(long minorUnits, String currency) {
+        return new Money(BigDecimal.valueOf(minorUnits, 2), currency);
+    }
+
+    /**
+     * Suma wielu kwot w jednym przebiegu (na long-ach), bez pośrednich obiektów Money.
+     */
+    public static Money sum(Iterable<Money> amounts) {
+        return new MoneyAccumulator().addAll(amounts).toMoney();
+    }
+
+    public long toMinorUnits() {
+        return amount.unscaledValue().longValueExact();
+    }
+
     public Money plus(Money other) {
         ensureSameCurrency(other);
         return new Money(this.amount.add(other.amount), this.currency);
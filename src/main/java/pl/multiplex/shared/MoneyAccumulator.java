@@ -0,0 +1,102 @@
+package pl.multiplex.shared;
+
+import java.util.Objects;
+import java.util.stream.Collector;
+
+/**
+ * Mutowalny sumator kwot w groszach – do sum zamówień, raportów przychodu itp.
+ * Suma to long – nie powstają pośrednie Money ani BigDecimal; Money powstaje dopiero w {@link #toMoney()}.
+ * add(MinorMoney) i merge() nie alokują nic. add(Money) tworzy chwilowy BigInteger w {@link Money#toMinorUnits()}
+ * (BigDecimal nie oddaje wartości bez skali inaczej) – JIT zwykle go usuwa, ale bez gwarancji; ścieżka bez alokacji to MinorMoney.
+ * Nie jest thread-safe (jak StringBuilder) – do strumieni równoległych służy {@link #summing()}.
+ */
+public final class MoneyAccumulator {
+
+    private CurrencyCode currency;
+    private String lastCurrency; // ostatnio widziany String waluty – zwykle ta sama instancja
+    private long total;
+    private long count;
+
+    public MoneyAccumulator() {
+    }
+
+    public MoneyAccumulator(CurrencyCode currency) {
+        this.currency = Objects.requireNonNull(currency, "currency cannot be null");
+    }
+
+    public MoneyAccumulator add(Money money) {
+        Objects.requireNonNull(money, "money cannot be null");
+        String code = money.currency();
+        if (code != lastCurrency) {
+            ensureCurrency(CurrencyCode.of(code));
+            lastCurrency = code;
+        }
+        total = Math.addExact(total, money.toMinorUnits());
+        count++;
+        return this;
+    }
+
+    public MoneyAccumulator add(MinorMoney money) {
+        Objects.requireNonNull(money, "money cannot be null");
+        ensureCurrency(money.currency());
+        total = Math.addExact(total, money.minorUnits());
+        count++;
+        return this;
+    }
+
+    public MoneyAccumulator addAll(Iterable<Money> amounts) {
+        Objects.requireNonNull(amounts, "amounts cannot be null");
+        for (Money money : amounts) {
+            add(money);
+        }
+        return this;
+    }
+
+    public MoneyAccumulator merge(MoneyAccumulator other) {
+        Objects.requireNonNull(other, "other cannot be null");
+        if (other.currency != null) {
+            ensureCurrency(other.currency);
+            total = Math.addExact(total, other.total);
+            count += other.count;
+        }
+        return this;
+    }
+
+    public long getMinorUnits() {
+        return total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public MinorMoney toMinorMoney() {
+        return new MinorMoney(total, requireCurrency());
+    }
+
+    public Money toMoney() {
+        return toMinorMoney().toMoney();
+    }
+
+    /**
+     * Collector sumujący strumień Money, np. {@code tickets.stream().map(Ticket::getPrice).collect(MoneyAccumulator.summing())}.
+     */
+    public static Collector<Money, MoneyAccumulator, Money> summing() {
+        return Collector.of(MoneyAccumulator::new, MoneyAccumulator::add, MoneyAccumulator::merge, MoneyAccumulator::toMoney);
+    }
+
+    private void ensureCurrency(CurrencyCode other) {
+        if (currency == null) {
+            currency = other;
+        } else if (currency != other) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other);
+        }
+    }
+
+    private CurrencyCode requireCurrency() {
+        if (currency == null) {
+            throw new IllegalStateException("Nothing was added and no currency was given");
+        }
+        return currency;
+    }
+}
@@ -0,0 +1,74 @@
+package pl.multiplex.shared;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 64-bitowe identyfikatory w stylu "snowflake":
+ * 41 bitów milisekund od EPOCH | 10 bitów numeru węzła | 12 bitów licznika w obrębie milisekundy.
+ * <p>
+ * Identyfikatory rosną w czasie i są unikalne między węzłami (o ile każdy węzeł ma inny nodeId).
+ * Stan (czas + licznik) trzymamy w jednym AtomicLong i przesuwamy CAS-em – bez blokad i bez SecureRandom.
+ * Gdy w jednej milisekundzie skończy się licznik albo zegar systemowy cofnie się, pożyczamy kolejną
+ * milisekundę zamiast czekać.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    public static final long EPOCH_MILLIS = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+
+    /**
+     * (milisekunda << SEQUENCE_BITS) | licznik – ostatnio wydany stan.
+     */
+    private final AtomicLong lastState = new AtomicLong();
+
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    public SnowflakeIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("nodeId must be in [0, " + MAX_NODE_ID + "]");
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+    }
+
+    public int getNodeId() {
+        return (int) (nodeBits >>> SEQUENCE_BITS);
+    }
+
+    @Override
+    public long nextId() {
+        long nowState = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        while (true) {
+            long last = lastState.get();
+            // nowa milisekunda -> licznik od zera; ta sama (albo zegar się cofnął) -> kolejny numer
+            long next = nowState > last ? nowState : last + 1;
+            if (lastState.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Chwila utworzenia zapisana w identyfikatorze.
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    public static int nodeIdOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}